@@ -0,0 +1,262 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.LabelExtractor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.test.ESIntegTestCase;
+
+/**
+ * Loads a synthetic sanction corpus into an in-process cluster and reports the latency of the
+ * access filter for every mode of the plugin, varying the size of the authorization sets and the
+ * selectivity of the rest of the query.
+ *
+ * <p>The corpus and the query mix are configured with system properties, see {@code README.md}.
+ * Every mode must find the same number of hits for the same query.
+ */
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.SUITE, numDataNodes = 1)
+public class AccessLoadIT extends ESIntegTestCase {
+  private static final String INDEX = "sanctions";
+
+  private static final int DOCS = Integer.getInteger("tests.load.docs", 10_000);
+  private static final int LABEL_CARDINALITY =
+      Integer.getInteger("tests.load.label_cardinality", 50);
+  private static final int NESTING = Integer.getInteger("tests.load.nesting", 1);
+  private static final int COMPLEXITY = Integer.getInteger("tests.load.complexity", 3);
+  private static final int ITERATIONS = Integer.getInteger("tests.load.iterations", 50);
+  private static final int WARMUP = Integer.getInteger("tests.load.warmup", 10);
+  private static final String AUTHORIZATION_SIZES =
+      System.getProperty("tests.load.authorization_sizes", "1,5,25");
+  private static final long SEED = Long.getLong("tests.load.seed", 42L);
+
+  enum Mode {
+    SCRIPT_SOURCE,
+    SCRIPT_PARTIAL_SOURCE,
+    SCRIPT_DOC_VALUES,
+    QUERY,
+    QUERY_LABEL_FIELD
+  }
+
+  enum Selectivity {
+    // every document reaches the access filter
+    ALL,
+    // about a fifth of the documents
+    COUNTRY,
+    // about a hundredth of the documents
+    SERIAL_RANGE
+  }
+
+  @Override
+  protected Collection<Class<? extends Plugin>> nodePlugins() {
+    return List.of(AccumuloAccessPlugin.class);
+  }
+
+  public void testLoad() throws Exception {
+    SanctionCorpus corpus = new SanctionCorpus(SEED, LABEL_CARDINALITY, NESTING, COMPLEXITY);
+    load(corpus);
+
+    logger.info(
+        "docs={} label_cardinality={} nesting={} complexity={} iterations={}",
+        DOCS,
+        LABEL_CARDINALITY,
+        NESTING,
+        COMPLEXITY,
+        ITERATIONS);
+    logger.info(
+        String.format(
+            Locale.ROOT,
+            "%-22s %-13s %6s %10s %10s %10s %10s %8s",
+            "mode",
+            "selectivity",
+            "auths",
+            "p50 ms",
+            "p90 ms",
+            "p99 ms",
+            "max ms",
+            "qps"));
+
+    for (Selectivity selectivity : Selectivity.values()) {
+      for (int size : authorizationSizes()) {
+        run(corpus, selectivity, size);
+      }
+    }
+  }
+
+  private void load(SanctionCorpus corpus) throws Exception {
+    indicesAdmin()
+        .prepareCreate(INDEX)
+        .setSettings(
+            Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put("index.requests.cache.enable", false))
+        .setMapping(corpus.mapping())
+        .get();
+
+    for (int from = 0; from < DOCS; from += 1000) {
+      BulkRequestBuilder bulk = client().prepareBulk();
+
+      for (int serial = from; serial < Math.min(DOCS, from + 1000); serial++) {
+        bulk.add(prepareIndex(INDEX).setSource(corpus.document(serial)));
+      }
+
+      BulkResponse response = bulk.get();
+      assertFalse(response.buildFailureMessage(), response.hasFailures());
+    }
+
+    indicesAdmin().prepareRefresh(INDEX).get();
+  }
+
+  /** Runs the same authorization sets through every mode and logs the latencies of each. */
+  private void run(SanctionCorpus corpus, Selectivity selectivity, int size) {
+    Random random = new Random(SEED + size);
+    List<List<String>> authorizationSets = new ArrayList<>();
+
+    for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+      authorizationSets.add(corpus.authorizations(random, size));
+    }
+
+    Map<Mode, long[]> hits = new EnumMap<>(Mode.class);
+
+    for (Mode mode : Mode.values()) {
+      long[] latencies = new long[ITERATIONS];
+      long[] modeHits = new long[authorizationSets.size()];
+      long total = 0;
+
+      for (int i = 0; i < authorizationSets.size(); i++) {
+        QueryBuilder query =
+            QueryBuilders.boolQuery()
+                .filter(selection(selectivity, i))
+                .filter(accessFilter(mode, corpus, authorizationSets.get(i)));
+
+        long start = System.nanoTime();
+        modeHits[i] = count(query);
+        long took = System.nanoTime() - start;
+
+        if (i >= WARMUP) {
+          latencies[i - WARMUP] = took;
+          total += took;
+        }
+      }
+
+      hits.put(mode, modeHits);
+      log(mode, selectivity, size, latencies, total);
+    }
+
+    long[] expected = hits.get(Mode.values()[0]);
+
+    for (Map.Entry<Mode, long[]> entry : hits.entrySet()) {
+      assertArrayEquals(
+          String.format(Locale.ROOT, "hits of %s with %s", entry.getKey(), selectivity),
+          expected,
+          entry.getValue());
+    }
+  }
+
+  private static QueryBuilder selection(Selectivity selectivity, int iteration) {
+    return switch (selectivity) {
+      case ALL -> QueryBuilders.matchAllQuery();
+      case COUNTRY -> QueryBuilders.termQuery(
+          "address_country",
+          SanctionCorpus.COUNTRIES[iteration % SanctionCorpus.COUNTRIES.length]);
+      case SERIAL_RANGE -> {
+        int width = Math.max(1, DOCS / 100);
+        int from = (iteration * width) % Math.max(1, DOCS - width);
+        yield QueryBuilders.rangeQuery("serial").gte(from).lt(from + width);
+      }
+    };
+  }
+
+  private static QueryBuilder accessFilter(
+      Mode mode, SanctionCorpus corpus, List<String> authorizations) {
+    return switch (mode) {
+      case SCRIPT_SOURCE -> script(corpus, authorizations, LabelSource.SOURCE);
+      case SCRIPT_PARTIAL_SOURCE -> script(corpus, authorizations, LabelSource.PARTIAL_SOURCE);
+      case SCRIPT_DOC_VALUES -> script(corpus, authorizations, LabelSource.DOC_VALUES);
+      case QUERY -> new AccumuloAccessQueryBuilder(corpus.labelField(), authorizations)
+          .labelExtractionPolicy(LabelExtractor.Policy.RAW);
+      case QUERY_LABEL_FIELD -> new AccumuloAccessQueryBuilder(
+          corpus.binaryLabelField(), authorizations);
+    };
+  }
+
+  private static QueryBuilder script(
+      SanctionCorpus corpus, List<String> authorizations, LabelSource labelSource) {
+    Map<String, Object> params = new HashMap<>();
+    params.put(ABACAccessLeafFactory.LABEL_FIELD_NAME, corpus.labelField());
+    params.put(ABACAccessLeafFactory.AUTHORIZATIONS_FIELD_NAME, String.join(",", authorizations));
+    params.put(ABACAccessLeafFactory.LABEL_EXTRACTION_POLICY, LabelExtractor.Policy.RAW.name());
+    params.put(ABACAccessLeafFactory.LABEL_SOURCE, labelSource.name());
+
+    return QueryBuilders.scriptQuery(
+        new Script(ScriptType.INLINE, "expert_scripts", "accumulo-access", params));
+  }
+
+  private static long count(QueryBuilder query) {
+    SearchResponse response =
+        prepareSearch(INDEX)
+            .setQuery(query)
+            .setSize(0)
+            .setTrackTotalHits(true)
+            .setRequestCache(false)
+            .get();
+
+    try {
+      return response.getHits().getTotalHits().value;
+    } finally {
+      response.decRef();
+    }
+  }
+
+  private void log(
+      Mode mode, Selectivity selectivity, int size, long[] latencies, long totalNanos) {
+    Arrays.sort(latencies);
+    double qps = totalNanos == 0 ? 0 : latencies.length * 1e9 / totalNanos;
+
+    logger.info(
+        String.format(
+            Locale.ROOT,
+            "%-22s %-13s %6d %10.2f %10.2f %10.2f %10.2f %8.1f",
+            mode,
+            selectivity,
+            size,
+            percentile(latencies, 0.50),
+            percentile(latencies, 0.90),
+            percentile(latencies, 0.99),
+            percentile(latencies, 1.00),
+            qps));
+  }
+
+  /** Returns the percentile of the sorted latencies, in milliseconds. */
+  private static double percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  private static int[] authorizationSizes() {
+    return Arrays.stream(AUTHORIZATION_SIZES.split(","))
+        .map(String::trim)
+        .mapToInt(Integer::parseInt)
+        .toArray();
+  }
+}
@@ -0,0 +1,162 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertResponse;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+import com.elasticsearch.data.LabelExtractor;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.SearchProfileShardResult;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.Before;
+
+/**
+ * Searches with the {@code disjunction_field}
+ * and profiles the {@code accumulo_access} query.
+ */
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.SUITE, numDataNodes = 1)
+public class AccumuloAccessQueryBuilderIT extends ESIntegTestCase {
+  private static final String INDEX = "sanctions";
+
+  private static final String PIPELINE =
+      """
+      {
+        "processors": [
+          {
+            "accumulo_label": {
+              "label_field": "programs",
+              "target_field": "label",
+              "disjunction_field": "tokens",
+              "ignore_missing": true,
+              "on_invalid_label": "skip"
+            }
+          }
+        ]
+      }
+      """;
+
+  @Override
+  protected Collection<Class<? extends Plugin>> nodePlugins() {
+    return List.of(AccumuloAccessPlugin.class);
+  }
+
+  @Before
+  public void indexDocuments() {
+    assertAcked(
+        clusterAdmin().preparePutPipeline("labels", new BytesArray(PIPELINE), XContentType.JSON));
+    assertAcked(
+        prepareCreate(INDEX)
+            .setSettings(
+                Settings.builder()
+                    .put("index.number_of_shards", 1)
+                    .put("index.final_pipeline", "labels"))
+            .setMapping(
+                "programs", "type=keyword", "label", "type=keyword", "tokens", "type=keyword"));
+
+    index("1", Map.of("programs", "BLUE"));
+    index("2", Map.of("programs", "RED|GREEN"));
+    index("3", Map.of("programs", "BLUE&RED"));
+    // documents the processor writes no label for, with a label and tokens of the client
+    index("4", Map.of("programs", "BLUE&", "label", "BLUE", "tokens", List.of("BLUE")));
+    index("5", Map.of("label", "BLUE", "tokens", List.of("BLUE")));
+  }
+
+  public void testMatchesTheSameDocumentsAsWithoutDisjunctionField() {
+    for (List<String> authorizations :
+        List.of(List.of("BLUE"), List.of("GREEN"), List.of("BLUE", "RED"), List.of("PINK"))) {
+      Set<String> expected = ids(new AccumuloAccessQueryBuilder("label", authorizations));
+
+      assertEquals(
+          authorizations.toString(),
+          expected,
+          ids(new AccumuloAccessQueryBuilder("label", authorizations).disjunctionField("tokens")));
+    }
+
+    assertEquals(
+        Set.of("1", "2", "3"),
+        ids(
+            new AccumuloAccessQueryBuilder("label", List.of("BLUE", "RED"))
+                .disjunctionField("tokens")));
+  }
+
+  public void testRejectsDisjunctionFieldWithNormalizer() {
+    assertAcked(
+        prepareCreate("normalized")
+            .setMapping("label", "type=keyword", "tokens", "type=keyword,normalizer=lowercase"));
+
+    SearchRequestBuilder request =
+        prepareSearch("normalized")
+            .setQuery(
+                new AccumuloAccessQueryBuilder("label", List.of("BLUE"))
+                    .disjunctionField("tokens"));
+
+    SearchPhaseExecutionException e =
+        expectThrows(SearchPhaseExecutionException.class, request::get);
+    assertThat(
+        e.getDetailedMessage(),
+        containsString(
+            "[accumulo_access] requires disjunction field [tokens] to have no normalizer"));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testProfileApiShowsTheSegmentBreakdown() {
+    AccumuloAccessQueryBuilder query =
+        new AccumuloAccessQueryBuilder("label", List.of("BLUE"))
+            .labelExtractionPolicy(LabelExtractor.Policy.RAW)
+            .profile(true);
+
+    // one segment, holding the labels BLUE, RED|GREEN and BLUE&RED
+    indicesAdmin().prepareForceMerge(INDEX).setMaxNumSegments(1).get();
+    refresh(INDEX);
+
+    assertResponse(
+        prepareSearch(INDEX).setProfile(true).setQuery(query),
+        response -> {
+          SearchProfileShardResult shard = response.getProfileResults().values().iterator().next();
+          ProfileResult result = shard.getQueryProfileResults().get(0).getQueryResults().get(0);
+          // the description does not change as the segments are searched
+          assertThat(result.getLuceneDescription(), not(containsString("segment")));
+
+          List<Map<String, Object>> segments =
+              (List<Map<String, Object>>) result.getDebugInfo().get("segments");
+          // the segment may first be checked against its label summary, which is mixed
+          assertEquals("terms", segments.get(segments.size() - 1).get("strategy"));
+
+          for (Map<String, Object> segment : segments) {
+            assertEquals(0, segment.get("segment"));
+            assertEquals(3L, segment.get("distinct_labels"));
+          }
+        });
+  }
+
+  private void index(String id, Map<String, Object> source) {
+    prepareIndex(INDEX)
+        .setId(id)
+        .setSource(source)
+        .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE)
+        .get();
+  }
+
+  private Set<String> ids(AccumuloAccessQueryBuilder query) {
+    query.labelExtractionPolicy(LabelExtractor.Policy.RAW);
+    Set<String> ids = new HashSet<>();
+    assertResponse(
+        prepareSearch(INDEX).setQuery(QueryBuilders.boolQuery().filter(query)),
+        response -> response.getHits().forEach(hit -> ids.add(hit.getId())));
+    return ids;
+  }
+}
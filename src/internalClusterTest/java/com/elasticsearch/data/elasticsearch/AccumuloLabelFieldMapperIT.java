@@ -0,0 +1,66 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.hamcrest.Matchers.startsWith;
+
+import com.elasticsearch.data.BinaryAccessExpression;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.DocumentParsingException;
+import org.elasticsearch.index.mapper.MapperServiceTestCase;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.plugins.Plugin;
+
+/** Parses documents with an {@code accumulo_label} field through the mappings of an index. */
+public class AccumuloLabelFieldMapperIT extends MapperServiceTestCase {
+
+  @Override
+  protected Collection<? extends Plugin> getPlugins() {
+    return List.of(new AccumuloAccessPlugin(Settings.EMPTY));
+  }
+
+  public void testValuesAreEncodedWhileParsing() throws IOException {
+    DocumentMapper mapper =
+        createDocumentMapper(
+            fieldMapping(
+                b ->
+                    b.field("type", "accumulo_label")
+                        .field("label_extraction_policy", "SPLIT_OR")));
+
+    ParsedDocument document = mapper.parse(source(b -> b.array("field", "BLUE, RED", "GREEN")));
+
+    // the values of a multi-valued field share a single doc value
+    List<IndexableField> fields = document.rootDoc().getFields("field");
+    assertEquals(1, fields.size());
+    assertEquals(
+        new BytesRef(BinaryAccessExpression.encodeAny(List.of("BLUE|RED", "GREEN"))),
+        fields.get(0).binaryValue());
+  }
+
+  public void testNullValueIsNotIndexed() throws IOException {
+    DocumentMapper mapper =
+        createDocumentMapper(fieldMapping(b -> b.field("type", "accumulo_label")));
+
+    ParsedDocument document = mapper.parse(source(b -> b.nullField("field")));
+
+    assertTrue(document.rootDoc().getFields("field").isEmpty());
+  }
+
+  public void testInvalidLabelFailsTheDocument() throws IOException {
+    DocumentMapper mapper =
+        createDocumentMapper(fieldMapping(b -> b.field("type", "accumulo_label")));
+
+    DocumentParsingException e =
+        expectThrows(
+            DocumentParsingException.class,
+            () -> mapper.parse(source(b -> b.field("field", "BLUE&"))));
+
+    assertThat(
+        e.getCause().getMessage(),
+        startsWith("Label [BLUE&] of field [field] is not a valid access expression"));
+  }
+}
@@ -0,0 +1,117 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertResponse;
+import static org.hamcrest.Matchers.containsString;
+
+import com.elasticsearch.data.LabelExtractor;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.junit.Before;
+
+/** Searches with the {@code accumulo_redact} extension on an in-process cluster. */
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.SUITE, numDataNodes = 1)
+public class RedactFetchSubPhaseIT extends ESIntegTestCase {
+  private static final String INDEX = "sanctions";
+
+  @Override
+  protected Collection<Class<? extends Plugin>> nodePlugins() {
+    return List.of(AccumuloAccessPlugin.class);
+  }
+
+  @Before
+  public void indexDocument() {
+    assertAcked(
+        prepareCreate(INDEX)
+            .setSettings(Settings.builder().put("index.number_of_shards", 1))
+            .setMapping("name", "type=text", "programs", "type=keyword"));
+    prepareIndex(INDEX)
+        .setId("1")
+        .setSource(
+            Map.of(
+                "name",
+                "Al Bayan",
+                "programs",
+                "BLUE",
+                "identity_documents",
+                List.of(Map.of("type", "BLUE", "number", 1), Map.of("type", "RED", "number", 2))))
+        .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE)
+        .get();
+  }
+
+  public void testRedactsWithTheAuthorizationsOfTheQuery() {
+    assertResponse(
+        search(new AccumuloAccessQueryBuilder("programs", List.of("BLUE")), null),
+        response ->
+            assertEquals(
+                List.of(Map.of("type", "BLUE", "number", 1)),
+                response.getHits().getAt(0).getSourceAsMap().get("identity_documents")));
+  }
+
+  public void testRejectsValuesReturnedWithoutRedaction() {
+    SearchRequestBuilder request =
+        search(new AccumuloAccessQueryBuilder("programs", List.of("BLUE")), null)
+            .highlighter(new HighlightBuilder().field("name"))
+            .addDocValueField("programs");
+
+    SearchPhaseExecutionException e =
+        expectThrows(SearchPhaseExecutionException.class, request::get);
+    assertThat(
+        e.getDetailedMessage(),
+        containsString(
+            "[accumulo_redact] only redacts the _source and cannot be combined with "
+                + "[docvalue_fields, highlight]"));
+  }
+
+  public void testScriptFilterRequiresExplicitAuthorizations() {
+    QueryBuilder scriptFilter =
+        QueryBuilders.scriptQuery(
+            new Script(
+                ScriptType.INLINE,
+                "expert_scripts",
+                "accumulo-access",
+                Map.of("labelField", "programs", "authorizations", "BLUE")));
+
+    SearchPhaseExecutionException e =
+        expectThrows(SearchPhaseExecutionException.class, search(scriptFilter, null)::get);
+    assertThat(
+        e.getDetailedMessage(),
+        containsString("[accumulo_redact] requires authorizations, either in the extension"));
+
+    assertResponse(
+        search(scriptFilter, List.of("BLUE")),
+        response ->
+            assertEquals(
+                List.of(Map.of("type", "BLUE", "number", 1)),
+                response.getHits().getAt(0).getSourceAsMap().get("identity_documents")));
+  }
+
+  private SearchRequestBuilder search(QueryBuilder filter, List<String> authorizations) {
+    SearchRequestBuilder request =
+        prepareSearch(INDEX).setQuery(QueryBuilders.boolQuery().filter(filter));
+    request
+        .request()
+        .source()
+        .ext(
+            List.of(
+                new RedactSearchExtBuilder(
+                    "identity_documents",
+                    "type",
+                    LabelExtractor.Policy.NONE,
+                    authorizations,
+                    null)));
+    return request;
+  }
+}
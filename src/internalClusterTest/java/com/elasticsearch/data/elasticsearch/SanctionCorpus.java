@@ -0,0 +1,154 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+
+/**
+ * Generates documents shaped like {@code src/test/resources/sanction1.json}, labeled with access
+ * expressions.
+ *
+ * <ul>
+ *   <li>{@code labelCardinality} is the number of distinct programs the labels are drawn from.
+ *   <li>{@code nestingDepth} is the number of objects the label fields are nested in.
+ *   <li>{@code complexity} is the number of programs of each label. Programs are or-ed in pairs
+ *       and the pairs are and-ed, e.g. {@code (PROG1|PROG7)&PROG3} for a complexity of 3.
+ * </ul>
+ *
+ * Every label is written both to a keyword field and to an {@code accumulo_label} field, so the
+ * modes of the plugin can be compared on the same labels.
+ */
+class SanctionCorpus {
+  static final String[] COUNTRIES = {"Pakistan", "China", "Iran", "Syria", "Cuba"};
+  private static final String[] NAMES = {
+    "SAEED, Muhammad", "CHEN, Mei Hsiang", "SUN, Sidong", "HAFIZ SAHIB", "SAYID, Hafiz Mohammad"
+  };
+
+  private final Random random;
+  private final int labelCardinality;
+  private final int nestingDepth;
+  private final int complexity;
+
+  SanctionCorpus(long seed, int labelCardinality, int nestingDepth, int complexity) {
+    this.random = new Random(seed);
+    this.labelCardinality = labelCardinality;
+    this.nestingDepth = nestingDepth;
+    this.complexity = Math.max(1, complexity);
+  }
+
+  static String program(int i) {
+    return "PROG" + i;
+  }
+
+  /** Returns the path of the keyword label field. */
+  String labelField() {
+    return prefix() + "access_label";
+  }
+
+  /** Returns the path of the {@code accumulo_label} label field. */
+  String binaryLabelField() {
+    return prefix() + "binary_label";
+  }
+
+  private String prefix() {
+    StringBuilder prefix = new StringBuilder();
+
+    for (int level = 1; level <= nestingDepth; level++) {
+      prefix.append("level").append(level).append('.');
+    }
+
+    return prefix.toString();
+  }
+
+  XContentBuilder mapping() throws IOException {
+    XContentBuilder mapping = XContentFactory.jsonBuilder().startObject();
+    mapping.startObject("properties");
+    mapping.startObject("serial").field("type", "long").endObject();
+    mapping.startObject("entity_type").field("type", "keyword").endObject();
+    mapping.startObject("address_country").field("type", "keyword").endObject();
+    mapping.startObject(labelField()).field("type", "keyword").endObject();
+    mapping.startObject(binaryLabelField()).field("type", "accumulo_label").endObject();
+    return mapping.endObject().endObject();
+  }
+
+  /** Returns the authorizations granting {@code size} random programs. */
+  List<String> authorizations(Random random, int size) {
+    List<String> authorizations = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      authorizations.add(program(random.nextInt(labelCardinality)));
+    }
+
+    return authorizations;
+  }
+
+  Map<String, Object> document(int serial) {
+    Map<String, Object> document = new LinkedHashMap<>();
+    document.put("serial", serial);
+    document.put("id", String.valueOf(serial));
+    document.put("entity_type", random.nextBoolean() ? "Individual" : "Entity");
+    document.put("sanction_list_ids", "SDN List");
+    document.put("sanction_list_publish_dates", "2008-05-27");
+    document.put("sanction_type", "Block");
+    document.put("entity_names", NAMES[random.nextInt(NAMES.length)]);
+    document.put("address_country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+    document.put("birthdate", "1950-06-05");
+    document.put("identity_documents", identityDocuments());
+
+    Map<String, Object> labels = document;
+
+    for (int level = 1; level <= nestingDepth; level++) {
+      Map<String, Object> nested = new LinkedHashMap<>();
+      nested.put("filler", "value" + level);
+      labels.put("level" + level, nested);
+      labels = nested;
+    }
+
+    String label = label();
+    labels.put("access_label", label);
+    labels.put("binary_label", label);
+    return document;
+  }
+
+  private String label() {
+    StringBuilder label = new StringBuilder();
+
+    for (int i = 0; i < complexity; i += 2) {
+      if (i > 0) {
+        label.append('&');
+      }
+
+      String program = program(random.nextInt(labelCardinality));
+
+      if (i + 1 == complexity) {
+        label.append(program);
+      } else {
+        String other = program(random.nextInt(labelCardinality));
+        // a single pair needs no parentheses
+        label.append(complexity == 2 ? program + "|" + other : "(" + program + "|" + other + ")");
+      }
+    }
+
+    return label.toString();
+  }
+
+  private List<Map<String, Object>> identityDocuments() {
+    List<Map<String, Object>> identityDocuments = new ArrayList<>();
+
+    for (int i = 0; i < 2; i++) {
+      Map<String, Object> identityDocument = new LinkedHashMap<>();
+      identityDocument.put("document_type", "National ID No.");
+      identityDocument.put("document_name", NAMES[random.nextInt(NAMES.length)]);
+      identityDocument.put("document_number", String.valueOf(random.nextInt(1_000_000)));
+      identityDocument.put("issuing_country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+      identityDocuments.add(identityDocument);
+    }
+
+    return identityDocuments;
+  }
+}
@@ -0,0 +1,73 @@
+package com.elasticsearch.data;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of extracted labels, with and without the verdict cache, and the
+ * construction of an evaluator, which happens once per query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LabelEvaluatorBenchmark {
+  private static final int DOCUMENTS = 1024;
+
+  @Param({"ACCUMULO", "BITMASK"})
+  public LabelEvaluator.Type evaluator;
+
+  @Param({"0", "1024"})
+  public int verdictCacheSize;
+
+  @Param({"4"})
+  public int arraySize;
+
+  @Param({"10", "1000"})
+  public int labelCardinality;
+
+  private List<String> authorizations;
+  private String[] labels;
+  private LabelEvaluator labelEvaluator;
+  private int next;
+
+  @Setup
+  public void setup() {
+    SyntheticDocuments generator = new SyntheticDocuments(42, 0, arraySize, labelCardinality);
+    LabelPath.Extractor extractor =
+        LabelPath.compile(generator.labelField(), LabelExtractor.Policy.SPLIT_OR).extractor();
+    authorizations = generator.authorizations();
+    labels = new String[DOCUMENTS];
+
+    for (int i = 0; i < DOCUMENTS; i++) {
+      labels[i] = extractor.extract(generator.document(i)).orElseThrow();
+    }
+
+    labelEvaluator =
+        new LabelEvaluator(authorizations, evaluator, verdictCacheSize, new AccessStats());
+  }
+
+  @Benchmark
+  public boolean canAccess() {
+    next = (next + 1) % DOCUMENTS;
+    return labelEvaluator.canAccess(labels[next]);
+  }
+
+  @Benchmark
+  public LabelEvaluator newEvaluator() {
+    return new LabelEvaluator(authorizations, evaluator, verdictCacheSize, new AccessStats());
+  }
+}
@@ -0,0 +1,81 @@
+package com.elasticsearch.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures label extraction from parsed {@code _source} maps and label sanitization. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LabelExtractorBenchmark {
+  private static final int DOCUMENTS = 1024;
+
+  @Param({"NONE", "SPLIT_OR", "SPLIT_AND"})
+  public LabelExtractor.Policy policy;
+
+  @Param({"0", "2"})
+  public int nestingDepth;
+
+  @Param({"1", "4"})
+  public int arraySize;
+
+  @Param({"10", "1000"})
+  public int labelCardinality;
+
+  private List<Map<String, Object>> documents;
+  private String[] rawLabels;
+  private String labelField;
+  private LabelPath.Extractor extractor;
+  private int next;
+
+  @Setup
+  public void setup() {
+    SyntheticDocuments generator =
+        new SyntheticDocuments(42, nestingDepth, arraySize, labelCardinality);
+    documents = generator.documents(DOCUMENTS);
+    labelField = generator.labelField();
+    extractor = LabelPath.compile(labelField, policy).extractor();
+    rawLabels = new String[DOCUMENTS];
+
+    for (int i = 0; i < DOCUMENTS; i++) {
+      // shaped like "NPWMD, IRGC, IFSR, SDGT"
+      rawLabels[i] = "NPWMD, IRGC, " + SyntheticDocuments.program(i % labelCardinality);
+    }
+  }
+
+  private int nextIndex() {
+    next = (next + 1) % DOCUMENTS;
+    return next;
+  }
+
+  @Benchmark
+  public Optional<String> extract() {
+    return LabelExtractor.extract(documents.get(nextIndex()), labelField, policy);
+  }
+
+  @Benchmark
+  public CharSequence extractReusingBuffer() {
+    return extractor.extractLabel(documents.get(nextIndex()));
+  }
+
+  @Benchmark
+  public String sanitizeLabel() {
+    return LabelExtractor.sanitizeLabel(rawLabels[nextIndex()], policy);
+  }
+}
@@ -0,0 +1,152 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates documents shaped like {@code src/test/resources/sanction1.json}: a handful of string
+ * fields, a nested {@code identity_documents} like array of objects and a label field of sanction
+ * programs.
+ *
+ * <ul>
+ *   <li>{@code nestingDepth} is the number of objects the label field is nested in. The innermost
+ *       one is an array of {@code arraySize} objects, like {@code identity_documents}.
+ *   <li>{@code arraySize} is the number of programs of each label. A single program is written as
+ *       a string, more as an array of strings, and every other array holds a comma separated
+ *       string like {@code test_data1.json}.
+ *   <li>{@code labelCardinality} is the number of distinct programs the labels are drawn from.
+ * </ul>
+ */
+public class SyntheticDocuments {
+  private static final String[] NAMES = {
+    "SAEED, Muhammad", "CHEN, Mei Hsiang", "SUN, Sidong", "HAFIZ SAHIB", "SAYID, Hafiz Mohammad"
+  };
+  private static final String[] COUNTRIES = {"Pakistan", "China", "Iran", "Syria", "Cuba"};
+
+  private final Random random;
+  private final int nestingDepth;
+  private final int arraySize;
+  private final int labelCardinality;
+
+  public SyntheticDocuments(long seed, int nestingDepth, int arraySize, int labelCardinality) {
+    this.random = new Random(seed);
+    this.nestingDepth = nestingDepth;
+    this.arraySize = arraySize;
+    this.labelCardinality = labelCardinality;
+  }
+
+  /** Returns the name of the i-th sanction program. */
+  public static String program(int i) {
+    return "PROG" + i;
+  }
+
+  /** Returns the authorizations granting every other program. */
+  public List<String> authorizations() {
+    List<String> authorizations = new ArrayList<>();
+
+    for (int i = 0; i < labelCardinality; i += 2) {
+      authorizations.add(program(i));
+    }
+
+    return authorizations;
+  }
+
+  /** Returns the path of the label field, using {@code .} notation for nested fields. */
+  public String labelField() {
+    StringBuilder labelField = new StringBuilder();
+
+    for (int level = 1; level <= nestingDepth; level++) {
+      labelField.append("level").append(level).append('.');
+    }
+
+    return labelField.append("sanction_programs").toString();
+  }
+
+  public List<Map<String, Object>> documents(int count) {
+    List<Map<String, Object>> documents = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      documents.add(document(i));
+    }
+
+    return documents;
+  }
+
+  public Map<String, Object> document(int id) {
+    Map<String, Object> document = new LinkedHashMap<>();
+    document.put("id", String.valueOf(id));
+    document.put("entity_type", random.nextBoolean() ? "Individual" : "Entity");
+    document.put("sanction_list_ids", "SDN List");
+    document.put("sanction_list_publish_dates", "2008-05-27");
+    document.put("sanction_type", "Block");
+    document.put("entity_names", NAMES[random.nextInt(NAMES.length)]);
+    document.put("address_country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+    document.put("birthdate", "1950-06-05");
+    document.put("identity_documents", identityDocuments());
+
+    if (nestingDepth == 0) {
+      document.put("sanction_programs", label());
+    } else {
+      document.put("level1", nested(1));
+    }
+
+    return document;
+  }
+
+  private Object nested(int level) {
+    if (level < nestingDepth) {
+      return Map.of("level" + (level + 1), nested(level + 1), "filler", "value" + level);
+    }
+
+    List<Map<String, Object>> objects = new ArrayList<>(arraySize);
+
+    for (int i = 0; i < Math.max(1, arraySize); i++) {
+      Map<String, Object> object = new HashMap<>();
+      object.put("document_type", "Passport");
+      object.put("sanction_programs", label());
+      objects.add(object);
+    }
+
+    return objects;
+  }
+
+  private Object label() {
+    if (arraySize <= 1) {
+      return program(random.nextInt(labelCardinality));
+    }
+
+    List<Object> programs = new ArrayList<>(arraySize);
+
+    for (int i = 0; i < arraySize; i++) {
+      if (i % 2 == 1) {
+        programs.add(
+            program(random.nextInt(labelCardinality))
+                + ", "
+                + program(random.nextInt(labelCardinality)));
+      } else {
+        programs.add(program(random.nextInt(labelCardinality)));
+      }
+    }
+
+    return programs;
+  }
+
+  private List<Map<String, Object>> identityDocuments() {
+    List<Map<String, Object>> identityDocuments = new ArrayList<>();
+
+    for (int i = 0; i < 2; i++) {
+      Map<String, Object> identityDocument = new LinkedHashMap<>();
+      identityDocument.put("document_type", "National ID No.");
+      identityDocument.put("document_name", NAMES[random.nextInt(NAMES.length)]);
+      identityDocument.put("document_number", String.valueOf(random.nextInt(1_000_000)));
+      identityDocument.put("issuing_country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+      identityDocuments.add(identityDocument);
+    }
+
+    return identityDocuments;
+  }
+}
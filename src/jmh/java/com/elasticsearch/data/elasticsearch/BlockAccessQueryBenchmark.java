@@ -0,0 +1,198 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.SyntheticDocuments;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filters one segment of synthetic documents with the per document filter script, with a per
+ * document loop over the doc values of the label field and with the {@link BlockAccessQuery},
+ * reporting documents per millisecond. The doc values loop reads the same ordinals as the block
+ * query, so the difference between the two is the gain of evaluating a block at a time.
+ *
+ * <p>Like a search, every invocation starts with empty verdict caches. {@link
+ * #blockQueryWithSelectiveClause} filters the documents of a clause matching one document in 64,
+ * which the block query verifies one at a time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(BlockAccessQueryBenchmark.DOCUMENTS)
+public class BlockAccessQueryBenchmark {
+  static final int DOCUMENTS = 16_384;
+  private static final String LABEL_FIELD = "sanction_programs";
+  private static final LabelExtractor.Policy POLICY = LabelExtractor.Policy.SPLIT_OR;
+  private static final String SELECTIVE_FIELD = "selective";
+
+  @Param({"1", "4"})
+  public int arraySize;
+
+  @Param({"10", "1000"})
+  public int labelCardinality;
+
+  private Directory directory;
+  private DirectoryReader reader;
+  private IndexSearcher searcher;
+  private List<BytesReference> sources;
+  private Map<String, Object> params;
+  private LabelEvaluator evaluator;
+  private BlockAccessQuery blockQuery;
+  private Query selectiveQuery;
+
+  @Setup
+  public void setup() throws IOException {
+    SyntheticDocuments generator = new SyntheticDocuments(42, 0, arraySize, labelCardinality);
+    sources = new ArrayList<>(DOCUMENTS);
+    directory = new ByteBuffersDirectory();
+
+    try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+      for (Map<String, Object> document : generator.documents(DOCUMENTS)) {
+        Document labelDocument = labelDocument(document.get(LABEL_FIELD));
+        labelDocument.add(
+            new StringField(
+                SELECTIVE_FIELD, sources.size() % 64 == 0 ? "yes" : "no", Field.Store.NO));
+        sources.add(BytesReference.bytes(XContentFactory.jsonBuilder().map(document)));
+        writer.addDocument(labelDocument);
+      }
+
+      writer.forceMerge(1);
+    }
+
+    reader = DirectoryReader.open(directory);
+    searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+
+    AccessStats stats = new AccessStats();
+    params = new HashMap<>();
+    params.put(ABACAccessLeafFactory.LABEL_FIELD_NAME, LABEL_FIELD);
+    params.put(
+        ABACAccessLeafFactory.AUTHORIZATIONS_FIELD_NAME,
+        String.join(",", generator.authorizations()));
+    params.put(ABACAccessLeafFactory.LABEL_EXTRACTION_POLICY, POLICY.name());
+    params.put(ABACAccessLeafFactory.LABEL_SOURCE, LabelSource.SOURCE.name());
+
+    evaluator =
+        new LabelEvaluator(generator.authorizations(), LabelEvaluator.Type.ACCUMULO, 1024, stats);
+    blockQuery = new BlockAccessQuery(LABEL_FIELD, generator.authorizations(), POLICY, stats);
+    selectiveQuery =
+        new BooleanQuery.Builder()
+            .add(new TermQuery(new Term(SELECTIVE_FIELD, "yes")), BooleanClause.Occur.FILTER)
+            .add(blockQuery, BooleanClause.Occur.FILTER)
+            .build();
+  }
+
+  private static Document labelDocument(Object label) {
+    Document document = new Document();
+    List<?> values = label instanceof List<?> list ? list : List.of(label);
+
+    for (Object value : values) {
+      document.add(new StringField(LABEL_FIELD, value.toString(), Field.Store.NO));
+      document.add(new SortedSetDocValuesField(LABEL_FIELD, new BytesRef(value.toString())));
+    }
+
+    return document;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    reader.close();
+    directory.close();
+  }
+
+  @Benchmark
+  public int filterScript() {
+    // a new factory per query, so its verdicts are not shared with the previous invocation
+    AccessStats stats = new AccessStats();
+    FilterScript script =
+        new ABACAccessLeafFactory(
+                params, SourceDocReader.LOOKUP, stats, new AuthorizationProfiles(stats))
+            .newInstance(new SourceDocReader(sources));
+    int matches = 0;
+
+    for (int doc = 0; doc < DOCUMENTS; doc++) {
+      script.setDocument(doc);
+
+      if (script.execute()) {
+        matches++;
+      }
+    }
+
+    return matches;
+  }
+
+  @Benchmark
+  public int perDocumentDocValues() throws IOException {
+    SortedSetDocValues values =
+        DocValues.getSortedSet(reader.leaves().get(0).reader(), LABEL_FIELD);
+    LabelEvaluator evaluator = this.evaluator.withEmptyCache();
+    int matches = 0;
+
+    for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+      for (int i = 0; i < values.docValueCount(); i++) {
+        String label = values.lookupOrd(values.nextOrd()).utf8ToString();
+
+        if (evaluator.canAccess(LabelExtractor.sanitizeLabel(label, POLICY))) {
+          matches++;
+          break;
+        }
+      }
+    }
+
+    return matches;
+  }
+
+  @Benchmark
+  public int blockQuery() throws IOException {
+    return searcher.count(blockQuery);
+  }
+
+  @Benchmark
+  public int blockQueryWithSelectiveClause() throws IOException {
+    return searcher.count(selectiveQuery);
+  }
+}
@@ -0,0 +1,130 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.SyntheticDocuments;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filters the segments of a shard on a pool of search threads, the way Elasticsearch searches
+ * segments concurrently, with one leaf factory shared by all of them. Throughput in documents per
+ * millisecond should grow with {@code threads} up to the number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(ConcurrentSegmentSearchBenchmark.DOCUMENTS)
+public class ConcurrentSegmentSearchBenchmark {
+  static final int SEGMENTS = 16;
+  static final int DOCUMENTS_PER_SEGMENT = 2048;
+  static final int DOCUMENTS = SEGMENTS * DOCUMENTS_PER_SEGMENT;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  @Param({"ACCUMULO", "BITMASK"})
+  public String evaluator;
+
+  @Param({"100"})
+  public int labelCardinality;
+
+  private List<List<BytesReference>> segments;
+  private ABACAccessLeafFactory leafFactory;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws IOException {
+    SyntheticDocuments generator = new SyntheticDocuments(42, 1, 2, labelCardinality);
+    segments = new ArrayList<>(SEGMENTS);
+
+    for (int segment = 0; segment < SEGMENTS; segment++) {
+      List<BytesReference> sources = new ArrayList<>(DOCUMENTS_PER_SEGMENT);
+
+      for (int i = 0; i < DOCUMENTS_PER_SEGMENT; i++) {
+        Map<String, Object> document = generator.document(segment * DOCUMENTS_PER_SEGMENT + i);
+        sources.add(BytesReference.bytes(XContentFactory.jsonBuilder().map(document)));
+      }
+
+      segments.add(sources);
+    }
+
+    Map<String, Object> params = new HashMap<>();
+    params.put(ABACAccessLeafFactory.LABEL_FIELD_NAME, generator.labelField());
+    params.put(
+        ABACAccessLeafFactory.AUTHORIZATIONS_FIELD_NAME,
+        String.join(",", generator.authorizations()));
+    params.put(ABACAccessLeafFactory.LABEL_EXTRACTION_POLICY, "SPLIT_OR");
+    params.put(ABACAccessLeafFactory.LABEL_SOURCE, LabelSource.PARTIAL_SOURCE.name());
+    params.put(ABACAccessLeafFactory.EVALUATOR, evaluator);
+
+    AccessStats stats = new AccessStats();
+    leafFactory =
+        new ABACAccessLeafFactory(
+            params, SourceDocReader.LOOKUP, stats, new AuthorizationProfiles(stats));
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int filterSegments() throws InterruptedException, ExecutionException {
+    List<Future<Integer>> results = new ArrayList<>(SEGMENTS);
+
+    for (List<BytesReference> sources : segments) {
+      results.add(executor.submit(() -> filterSegment(sources)));
+    }
+
+    int matches = 0;
+
+    for (Future<Integer> result : results) {
+      matches += result.get();
+    }
+
+    return matches;
+  }
+
+  private int filterSegment(List<BytesReference> sources) throws IOException {
+    FilterScript script = leafFactory.newInstance(new SourceDocReader(sources));
+    int matches = 0;
+
+    for (int doc = 0; doc < sources.size(); doc++) {
+      script.setDocument(doc);
+
+      if (script.execute()) {
+        matches++;
+      }
+    }
+
+    return matches;
+  }
+}
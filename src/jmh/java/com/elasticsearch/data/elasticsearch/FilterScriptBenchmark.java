@@ -0,0 +1,94 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.SyntheticDocuments;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full filter script path, from reading {@code _source} to the verdict, and the
+ * creation of the leaf factory, which parses the params and builds the evaluator once per query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterScriptBenchmark {
+  private static final int DOCUMENTS = 1024;
+
+  @Param({"SOURCE", "PARTIAL_SOURCE"})
+  public LabelSource labelSource;
+
+  @Param({"ACCUMULO", "BITMASK"})
+  public String evaluator;
+
+  @Param({"0", "2"})
+  public int nestingDepth;
+
+  @Param({"1", "4"})
+  public int arraySize;
+
+  @Param({"10", "1000"})
+  public int labelCardinality;
+
+  private Map<String, Object> params;
+  private AccessStats stats;
+  private FilterScript script;
+  private int next;
+
+  @Setup
+  public void setup() throws IOException {
+    SyntheticDocuments generator =
+        new SyntheticDocuments(42, nestingDepth, arraySize, labelCardinality);
+    List<BytesReference> sources = new ArrayList<>(DOCUMENTS);
+
+    for (Map<String, Object> document : generator.documents(DOCUMENTS)) {
+      sources.add(BytesReference.bytes(XContentFactory.jsonBuilder().map(document)));
+    }
+
+    params = new HashMap<>();
+    params.put(ABACAccessLeafFactory.LABEL_FIELD_NAME, generator.labelField());
+    params.put(
+        ABACAccessLeafFactory.AUTHORIZATIONS_FIELD_NAME,
+        String.join(",", generator.authorizations()));
+    params.put(ABACAccessLeafFactory.LABEL_EXTRACTION_POLICY, "SPLIT_OR");
+    params.put(ABACAccessLeafFactory.LABEL_SOURCE, labelSource.name());
+    params.put(ABACAccessLeafFactory.EVALUATOR, evaluator);
+    stats = new AccessStats();
+
+    script = newLeafFactory().newInstance(new SourceDocReader(sources));
+  }
+
+  @Benchmark
+  public boolean execute() {
+    next = (next + 1) % DOCUMENTS;
+    script.setDocument(next);
+    return script.execute();
+  }
+
+  @Benchmark
+  public ABACAccessLeafFactory newLeafFactory() {
+    return new ABACAccessLeafFactory(
+        params, SourceDocReader.LOOKUP, stats, new AuthorizationProfiles(stats));
+  }
+}
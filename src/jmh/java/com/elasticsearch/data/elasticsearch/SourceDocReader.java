@@ -0,0 +1,65 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.script.DocReader;
+import org.elasticsearch.script.field.EmptyField;
+import org.elasticsearch.script.field.Field;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.lookup.Source;
+
+/**
+ * A {@link DocReader} over in-memory {@code _source} bytes. Like a real segment, the source of the
+ * current document is parsed again every time it is read.
+ */
+class SourceDocReader implements DocReader {
+  /** A search lookup without mapped fields, so the label is always read from {@code _source}. */
+  static final SearchLookup LOOKUP =
+      new SearchLookup(
+          field -> null,
+          (fieldType, lookup, operation) -> {
+            throw new UnsupportedOperationException();
+          },
+          null);
+
+  private final List<BytesReference> sources;
+  private int docId;
+
+  SourceDocReader(List<BytesReference> sources) {
+    this.sources = sources;
+  }
+
+  @Override
+  public void setDocument(int docId) {
+    this.docId = docId;
+  }
+
+  @Override
+  public Supplier<Source> source() {
+    return () -> Source.fromBytes(sources.get(docId));
+  }
+
+  @Override
+  public Map<String, ScriptDocValues<?>> doc() {
+    return Map.of();
+  }
+
+  @Override
+  public Field<?> field(String fieldName) {
+    return new EmptyField(fieldName);
+  }
+
+  @Override
+  public Stream<Field<?>> fields(String fieldGlob) {
+    return Stream.empty();
+  }
+
+  @Override
+  public Map<String, Object> docAsMap() {
+    return Map.of();
+  }
+}
@@ -0,0 +1,208 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses access expressions following the grammar of the accumulo-access library.
+ *
+ * <pre>
+ * access-expression = [ or-expression / and-expression ]
+ * and-expression    = operand *( "&amp;" operand )
+ * or-expression     = operand *( "|" operand )
+ * operand           = access-token / "(" ( or-expression / and-expression ) ")"
+ * access-token      = 1*( ALPHA / DIGIT / "_" / "-" / "." / ":" / "/" )
+ *                   / DQUOTE 1*( any character, with '"' and '\' escaped by '\' ) DQUOTE
+ * </pre>
+ *
+ * Invalid expressions are rejected with an {@link IllegalArgumentException}.
+ */
+public final class AccessExpressionParser {
+  private final String expression;
+  private int position;
+
+  private AccessExpressionParser(String expression) {
+    this.expression = expression;
+  }
+
+  /** A node of a parsed expression, either an 'AND' or an 'OR' of tokens and child nodes. */
+  public static final class Node {
+    private final boolean and;
+    private final List<String> tokens;
+    private final List<Node> children;
+
+    Node(boolean and, List<String> tokens, List<Node> children) {
+      this.and = and;
+      this.tokens = tokens;
+      this.children = children;
+    }
+
+    /** Returns true for an 'AND' node and false for an 'OR' node. */
+    public boolean isAnd() {
+      return and;
+    }
+
+    /** Returns the unquoted and unescaped access tokens of this node. */
+    public List<String> tokens() {
+      return tokens;
+    }
+
+    public List<Node> children() {
+      return children;
+    }
+  }
+
+  /** Parses the expression. The empty expression is an 'AND' of nothing, which always passes. */
+  public static Node parse(String expression) {
+    if (expression.isEmpty()) {
+      return new Node(true, List.of(), List.of());
+    }
+
+    AccessExpressionParser parser = new AccessExpressionParser(expression);
+    Node node = parser.parseExpression();
+
+    if (parser.position != expression.length()) {
+      throw parser.error("unexpected character '" + expression.charAt(parser.position) + "'");
+    }
+
+    return node;
+  }
+
+  /**
+   * Returns the distinct tokens of an expression that is a single token or an 'OR' of tokens, like
+   * {@code A|B|"C D"}, which is accessible exactly when any of its tokens is an authorization.
+   * Returns null for any other expression, e.g. one with '&amp;' or nested parentheses.
+   */
+  public static List<String> disjunctionTokens(String expression) {
+    Node node = parse(expression);
+
+    if (!node.children().isEmpty()
+        || node.tokens().isEmpty()
+        || (node.isAnd() && node.tokens().size() > 1)) {
+      return null;
+    }
+
+    return node.tokens().stream().distinct().toList();
+  }
+
+  private Node parseExpression() {
+    List<String> tokens = new ArrayList<>();
+    List<Node> children = new ArrayList<>();
+    char operator = 0;
+
+    parseOperand(tokens, children);
+
+    while (position < expression.length()) {
+      char c = expression.charAt(position);
+
+      if (c != '&' && c != '|') {
+        break;
+      }
+
+      if (operator == 0) {
+        operator = c;
+      } else if (operator != c) {
+        throw error("cannot mix '&' and '|' without parentheses");
+      }
+
+      position++;
+      parseOperand(tokens, children);
+    }
+
+    // a parenthesized expression on its own is the same as the expression itself
+    if (tokens.isEmpty() && children.size() == 1) {
+      return children.get(0);
+    }
+
+    return new Node(operator != '|', List.copyOf(tokens), List.copyOf(children));
+  }
+
+  private void parseOperand(List<String> tokens, List<Node> children) {
+    if (position >= expression.length()) {
+      throw error("expected an access token or '('");
+    }
+
+    char c = expression.charAt(position);
+
+    if (c == '(') {
+      position++;
+      children.add(parseExpression());
+
+      if (position >= expression.length() || expression.charAt(position) != ')') {
+        throw error("expected ')'");
+      }
+
+      position++;
+    } else if (c == '"') {
+      tokens.add(parseQuotedToken());
+    } else {
+      int start = position;
+
+      while (position < expression.length() && isTokenChar(expression.charAt(position))) {
+        position++;
+      }
+
+      if (start == position) {
+        throw error("expected an access token or '('");
+      }
+
+      tokens.add(expression.substring(start, position));
+    }
+  }
+
+  private String parseQuotedToken() {
+    int start = ++position;
+    StringBuilder unescaped = null;
+
+    while (position < expression.length() && expression.charAt(position) != '"') {
+      if (expression.charAt(position) == '\\') {
+        char escaped = position + 1 < expression.length() ? expression.charAt(position + 1) : 0;
+
+        if (escaped != '"' && escaped != '\\') {
+          throw error("invalid escaping within quotes");
+        }
+
+        if (unescaped == null) {
+          unescaped = new StringBuilder().append(expression, start, position);
+        }
+
+        position++;
+      }
+
+      if (unescaped != null) {
+        unescaped.append(expression.charAt(position));
+      }
+
+      position++;
+    }
+
+    if (position >= expression.length()) {
+      throw error("unclosed quote");
+    }
+
+    if (start == position) {
+      throw error("empty access token in quotes");
+    }
+
+    String token = unescaped == null ? expression.substring(start, position) : unescaped.toString();
+    position++;
+    return token;
+  }
+
+  static boolean isTokenChar(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '_'
+        || c == '-'
+        || c == '.'
+        || c == ':'
+        || c == '/';
+  }
+
+  private IllegalArgumentException error(String reason) {
+    return new IllegalArgumentException(
+        String.format(
+            "Invalid access expression [%s] at position %d: %s", expression, position, reason));
+  }
+}
@@ -0,0 +1,185 @@
+package com.elasticsearch.data;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A per query breakdown of the access checks, segment by segment: the time spent loading labels,
+ * extracting them and evaluating them, the number of distinct labels and the verdict cache hits.
+ *
+ * <p>Segments may be searched concurrently, so each one records into its own {@link Segment}, and
+ * the segments of a query are collected in a concurrent queue. The breakdowns should only be read
+ * once the search is done.
+ */
+public class AccessProfile {
+  private final Queue<Segment> segments = new ConcurrentLinkedQueue<>();
+
+  /** The breakdown of one segment, only updated by the thread searching the segment. */
+  public static final class Segment {
+    /** A segment that records nothing, used when the query is not profiled. */
+    public static final Segment DISABLED = new Segment(-1, "disabled", false);
+
+    private final int ord;
+    private final String strategy;
+    private final boolean enabled;
+    private long loadNanos;
+    private long extractNanos;
+    private long evaluateNanos;
+    private long evaluations;
+    private long distinctLabels;
+    private LabelVerdictCache verdictCache;
+
+    private Segment(int ord, String strategy, boolean enabled) {
+      this.ord = ord;
+      this.strategy = strategy;
+      this.enabled = enabled;
+    }
+
+    /** Returns the time the first step starts at. */
+    public long start() {
+      return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Records the time since {@code start} as loading, and returns the time the step ended. */
+    public long loaded(long start) {
+      if (!enabled) {
+        return 0;
+      }
+
+      long now = System.nanoTime();
+      loadNanos += now - start;
+      return now;
+    }
+
+    /** Records the time since {@code start} as extraction, and returns the time the step ended. */
+    public long extracted(long start) {
+      if (!enabled) {
+        return 0;
+      }
+
+      long now = System.nanoTime();
+      extractNanos += now - start;
+      return now;
+    }
+
+    /** Records the time since {@code start} as evaluation, and returns the time the step ended. */
+    public long evaluated(long start) {
+      if (!enabled) {
+        return 0;
+      }
+
+      long now = System.nanoTime();
+      evaluateNanos += now - start;
+      evaluations++;
+      return now;
+    }
+
+    /** Records a label seen for the first time in the segment. */
+    public void distinctLabel() {
+      if (enabled) {
+        distinctLabels++;
+      }
+    }
+
+    /** Sets the verdict cache whose hits and misses are reported. */
+    public void verdictCache(LabelVerdictCache verdictCache) {
+      if (enabled) {
+        this.verdictCache = verdictCache;
+      }
+    }
+
+    public int ord() {
+      return ord;
+    }
+
+    public String strategy() {
+      return strategy;
+    }
+
+    public long loadNanos() {
+      return loadNanos;
+    }
+
+    public long extractNanos() {
+      return extractNanos;
+    }
+
+    public long evaluateNanos() {
+      return evaluateNanos;
+    }
+
+    public long evaluations() {
+      return evaluations;
+    }
+
+    public long distinctLabels() {
+      return distinctLabels;
+    }
+
+    public long cacheHits() {
+      return verdictCache == null ? 0 : verdictCache.hits();
+    }
+
+    public long cacheMisses() {
+      return verdictCache == null ? 0 : verdictCache.misses();
+    }
+
+    /** Returns the breakdown as a map, e.g. for the debug section of the Profile API. */
+    public Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("segment", ord);
+      map.put("strategy", strategy);
+      map.put("load_nanos", loadNanos);
+      map.put("extract_nanos", extractNanos);
+      map.put("evaluate_nanos", evaluateNanos);
+      map.put("evaluations", evaluations);
+      map.put("distinct_labels", distinctLabels);
+      map.put("cache_hits", cacheHits());
+      map.put("cache_misses", cacheMisses());
+      return map;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "segment %d (%s): load %.3fms, extract %.3fms, evaluate %.3fms, evaluations %d, "
+              + "distinct labels %d, cache hits %d, cache misses %d",
+          ord,
+          strategy,
+          millis(loadNanos),
+          millis(extractNanos),
+          millis(evaluateNanos),
+          evaluations,
+          distinctLabels,
+          cacheHits(),
+          cacheMisses());
+    }
+
+    private static double millis(long nanos) {
+      return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+  }
+
+  /** Starts the breakdown of a segment, searched with the given strategy. */
+  public Segment segment(int ord, String strategy) {
+    Segment segment = new Segment(ord, strategy, true);
+    segments.add(segment);
+    return segment;
+  }
+
+  /** Returns the breakdowns recorded so far, ordered by segment. */
+  public List<Segment> segments() {
+    return segments.stream().sorted(Comparator.comparingInt(Segment::ord)).toList();
+  }
+
+  @Override
+  public String toString() {
+    return segments().stream().map(Segment::toString).collect(Collectors.joining("; ", "[", "]"));
+  }
+}
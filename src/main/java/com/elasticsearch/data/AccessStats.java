@@ -0,0 +1,169 @@
+package com.elasticsearch.data;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Node wide counters of the access checks. Documents without a label and invalid labels are not
+ * logged one by one but counted, and reported in a single aggregated log line at most once per
+ * {@link #REPORT_INTERVAL_MILLIS}.
+ */
+public class AccessStats {
+  private static final Logger logger = LogManager.getLogger(AccessStats.class);
+
+  public static final long REPORT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /** Upper bounds in microseconds of the segment evaluation time buckets, the last is unbounded. */
+  public static final long[] HISTOGRAM_BOUNDS_MICROS = {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+  /** A point in time copy of the counters. */
+  public record Snapshot(
+      long evaluations,
+      long allowed,
+      long denied,
+      long extractionFailures,
+      long parseErrors,
+      long cacheHits,
+      long cacheMisses,
+      long segments,
+      long segmentTimeNanos,
+      long[] segmentHistogram,
+      Map<String, Long> strategySegments) {}
+
+  private final LongAdder evaluations = new LongAdder();
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder denied = new LongAdder();
+  private final LongAdder extractionFailures = new LongAdder();
+  private final LongAdder parseErrors = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+  private final LongAdder segmentTimeNanos = new LongAdder();
+  private final LongAdder[] segmentHistogram = new LongAdder[HISTOGRAM_BOUNDS_MICROS.length + 1];
+  private final Map<String, LongAdder> strategySegments = new ConcurrentHashMap<>();
+
+  private final LongAdder unreportedExtractionFailures = new LongAdder();
+  private final LongAdder unreportedParseErrors = new LongAdder();
+  private final AtomicReference<String> lastUnlabeledField = new AtomicReference<>();
+  private final AtomicReference<String> lastParseError = new AtomicReference<>();
+  // report the first problem right away
+  private final AtomicLong lastReportMillis = new AtomicLong(Long.MIN_VALUE / 2);
+
+  public AccessStats() {
+    for (int i = 0; i < segmentHistogram.length; i++) {
+      segmentHistogram[i] = new LongAdder();
+    }
+  }
+
+  /** Records the verdict of an access check, whether or not it was cached. */
+  public void recordEvaluation(boolean canAccess) {
+    evaluations.increment();
+    (canAccess ? allowed : denied).increment();
+  }
+
+  /** Records an access check whose verdict was not cached. */
+  public void recordCacheMiss() {
+    cacheMisses.increment();
+  }
+
+  /** Records a document whose label could not be determined. */
+  public void recordExtractionFailure(String labelField) {
+    extractionFailures.increment();
+    unreportedExtractionFailures.increment();
+    lastUnlabeledField.set(labelField);
+    maybeReport();
+  }
+
+  /** Records a label that is not a valid access expression. */
+  public void recordParseError(String label, String error) {
+    parseErrors.increment();
+    unreportedParseErrors.increment();
+    lastParseError.set(String.format("label [%s], error: %s", label, error));
+    maybeReport();
+  }
+
+  /**
+   * Records a segment searched with the strategy, whose labels took {@code nanos} to evaluate
+   * before its documents were iterated.
+   */
+  public void recordSegment(String strategy, long nanos) {
+    recordSegment(strategy);
+    segmentTimeNanos.add(nanos);
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    int bucket = 0;
+
+    while (bucket < HISTOGRAM_BOUNDS_MICROS.length && micros >= HISTOGRAM_BOUNDS_MICROS[bucket]) {
+      bucket++;
+    }
+
+    segmentHistogram[bucket].increment();
+  }
+
+  /**
+   * Records a segment searched with the strategy, whose labels are evaluated while its documents
+   * are iterated, which is not timed.
+   */
+  public void recordSegment(String strategy) {
+    strategySegments.computeIfAbsent(strategy, k -> new LongAdder()).increment();
+  }
+
+  public Snapshot snapshot() {
+    long[] histogram = new long[segmentHistogram.length];
+    long segments = 0;
+
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = segmentHistogram[i].sum();
+      segments += histogram[i];
+    }
+
+    Map<String, Long> strategySegments = new TreeMap<>();
+    this.strategySegments.forEach((strategy, count) -> strategySegments.put(strategy, count.sum()));
+
+    long evaluations = this.evaluations.sum();
+    long cacheMisses = this.cacheMisses.sum();
+
+    return new Snapshot(
+        evaluations,
+        allowed.sum(),
+        denied.sum(),
+        extractionFailures.sum(),
+        parseErrors.sum(),
+        Math.max(0, evaluations - cacheMisses),
+        cacheMisses,
+        segments,
+        segmentTimeNanos.sum(),
+        histogram,
+        strategySegments);
+  }
+
+  private void maybeReport() {
+    long now = System.currentTimeMillis();
+    long last = lastReportMillis.get();
+
+    if (now - last < REPORT_INTERVAL_MILLIS || !lastReportMillis.compareAndSet(last, now)) {
+      return;
+    }
+
+    long failures = unreportedExtractionFailures.sumThenReset();
+    long errors = unreportedParseErrors.sumThenReset();
+
+    if (failures > 0) {
+      logger.info(
+          "Unable to determine label of [{}] documents since the last report, last field [{}]",
+          failures,
+          lastUnlabeledField.get());
+    }
+
+    if (errors > 0) {
+      logger.info(
+          "Failed to process [{}] labels since the last report, last {}",
+          errors,
+          lastParseError.get());
+    }
+  }
+}
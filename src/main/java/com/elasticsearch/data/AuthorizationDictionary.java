@@ -0,0 +1,58 @@
+package com.elasticsearch.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns authorization tokens to dense integer ids, so that sets of authorizations can be
+ * represented as bit masks of {@link #words()} longs.
+ */
+public final class AuthorizationDictionary {
+  private final Map<String, Integer> ids;
+
+  private AuthorizationDictionary(Map<String, Integer> ids) {
+    this.ids = ids;
+  }
+
+  /** Creates a dictionary of the given authorizations, numbered in iteration order. */
+  public static AuthorizationDictionary of(Collection<String> authorizations) {
+    Map<String, Integer> ids = new HashMap<>();
+
+    for (String authorization : authorizations) {
+      ids.putIfAbsent(authorization, ids.size());
+    }
+
+    return new AuthorizationDictionary(ids);
+  }
+
+  /** Returns the id of the token, or -1 if the token is not in the dictionary. */
+  public int id(String token) {
+    Integer id = ids.get(token);
+    return id == null ? -1 : id;
+  }
+
+  public int size() {
+    return ids.size();
+  }
+
+  /** Returns the number of longs needed for a bit mask over the dictionary. */
+  public int words() {
+    return Math.max(1, (ids.size() + 63) >>> 6);
+  }
+
+  /** Returns the bit mask of the given authorizations. Unknown authorizations are ignored. */
+  public long[] mask(Collection<String> authorizations) {
+    long[] mask = new long[words()];
+
+    for (String authorization : authorizations) {
+      int id = id(authorization);
+
+      if (id >= 0) {
+        mask[id >>> 6] |= 1L << id;
+      }
+    }
+
+    return mask;
+  }
+}
@@ -0,0 +1,225 @@
+package com.elasticsearch.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary form of a parsed access expression, evaluated without parsing or allocating.
+ *
+ * <pre>
+ * node   = vint(tokens &lt;&lt; 1 | (and ? 0 : 1)) *token vint(children) *node
+ * token  = vint(length) utf-8 bytes of the unescaped token
+ * </pre>
+ *
+ * Variable length ints use 7 bits per byte, least significant group first.
+ */
+public final class BinaryAccessExpression {
+
+  private BinaryAccessExpression() {}
+
+  /** Parses and encodes the expression, rejecting invalid expressions. */
+  public static byte[] encode(String expression) {
+    return encode(AccessExpressionParser.parse(expression));
+  }
+
+  /** Encodes the 'OR' of the expressions, e.g. of the values of a multi-valued field. */
+  public static byte[] encodeAny(Collection<String> expressions) {
+    List<AccessExpressionParser.Node> nodes = new ArrayList<>(expressions.size());
+
+    for (String expression : expressions) {
+      nodes.add(AccessExpressionParser.parse(expression));
+    }
+
+    return encodeAnyParsed(nodes);
+  }
+
+  /** Encodes the 'OR' of the parsed expressions. */
+  public static byte[] encodeAnyParsed(List<AccessExpressionParser.Node> nodes) {
+    if (nodes.size() == 1) {
+      return encode(nodes.get(0));
+    }
+
+    return encode(new AccessExpressionParser.Node(false, List.of(), List.copyOf(nodes)));
+  }
+
+  /**
+   * Combines encoded expressions into the encoding of their 'OR', the same as {@link
+   * #encodeAnyParsed} of the parsed expressions, without encoding them again.
+   */
+  public static byte[] encodeAnyEncoded(List<byte[]> encoded) {
+    if (encoded.size() == 1) {
+      return encoded.get(0);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // an 'OR' node without tokens whose children are the expressions
+    writeVInt(1, out);
+    writeVInt(encoded.size(), out);
+
+    for (byte[] bytes : encoded) {
+      out.write(bytes, 0, bytes.length);
+    }
+
+    return out.toByteArray();
+  }
+
+  public static byte[] encode(AccessExpressionParser.Node node) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(node, out);
+    return out.toByteArray();
+  }
+
+  private static void write(AccessExpressionParser.Node node, ByteArrayOutputStream out) {
+    writeVInt(node.tokens().size() << 1 | (node.isAnd() ? 0 : 1), out);
+
+    for (String token : node.tokens()) {
+      byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+      writeVInt(bytes.length, out);
+      out.write(bytes, 0, bytes.length);
+    }
+
+    writeVInt(node.children().size(), out);
+
+    for (AccessExpressionParser.Node child : node.children()) {
+      write(child, out);
+    }
+  }
+
+  private static void writeVInt(int value, ByteArrayOutputStream out) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+
+    out.write(value);
+  }
+
+  /** Decodes an encoded expression back into its parsed form, e.g. to explain its verdict. */
+  public static AccessExpressionParser.Node decode(byte[] bytes, int offset) {
+    return read(bytes, new int[] {offset});
+  }
+
+  private static AccessExpressionParser.Node read(byte[] bytes, int[] position) {
+    int header = readVInt(bytes, position);
+    List<String> tokens = new ArrayList<>(header >>> 1);
+
+    for (int i = header >>> 1; i > 0; i--) {
+      int length = readVInt(bytes, position);
+      tokens.add(new String(bytes, position[0], length, StandardCharsets.UTF_8));
+      position[0] += length;
+    }
+
+    int childCount = readVInt(bytes, position);
+    List<AccessExpressionParser.Node> children = new ArrayList<>(childCount);
+
+    for (int i = 0; i < childCount; i++) {
+      children.add(read(bytes, position));
+    }
+
+    return new AccessExpressionParser.Node((header & 1) == 0, tokens, children);
+  }
+
+  private static int readVInt(byte[] bytes, int[] position) {
+    int value = 0;
+
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[position[0]++];
+      value |= (b & 0x7F) << shift;
+
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Evaluates encoded expressions against a set of authorizations. Instances keep a read position
+   * and must only be used by one thread at a time.
+   */
+  public static final class Evaluator {
+    // sorted, so tokens are looked up by binary search directly in the encoded bytes
+    private final byte[][] authorizations;
+    private byte[] bytes;
+    private int position;
+
+    public Evaluator(Collection<String> authorizations) {
+      this.authorizations =
+          authorizations.stream()
+              .distinct()
+              .map(authorization -> authorization.getBytes(StandardCharsets.UTF_8))
+              .sorted(Arrays::compareUnsigned)
+              .toArray(byte[][]::new);
+    }
+
+    public boolean canAccess(byte[] bytes) {
+      return canAccess(bytes, 0);
+    }
+
+    public boolean canAccess(byte[] bytes, int offset) {
+      this.bytes = bytes;
+      this.position = offset;
+      return evaluate();
+    }
+
+    private boolean evaluate() {
+      int header = readVInt();
+      boolean and = (header & 1) == 0;
+      boolean result = and;
+
+      for (int i = header >>> 1; i > 0; i--) {
+        int length = readVInt();
+        boolean authorized = isAuthorized(position, length);
+        position += length;
+        result = and ? result & authorized : result | authorized;
+      }
+
+      // children are evaluated even once the result is known, as their length is not encoded
+      for (int i = readVInt(); i > 0; i--) {
+        boolean child = evaluate();
+        result = and ? result & child : result | child;
+      }
+
+      return result;
+    }
+
+    private boolean isAuthorized(int offset, int length) {
+      int low = 0;
+      int high = authorizations.length - 1;
+
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        byte[] authorization = authorizations[mid];
+        int cmp =
+            Arrays.compareUnsigned(
+                authorization, 0, authorization.length, bytes, offset, offset + length);
+
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private int readVInt() {
+      int value = 0;
+
+      for (int shift = 0; ; shift += 7) {
+        byte b = bytes[position++];
+        value |= (b & 0x7F) << shift;
+
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates access expressions with bitwise operations instead of string comparisons. The tokens
+ * of the query's authorizations are interned into an {@link AuthorizationDictionary}, and every
+ * label expression is compiled once into a {@link Program} whose nodes hold the bit mask of their
+ * tokens. Evaluating a program against an authorization mask is then a few 'AND's of longs per
+ * node.
+ *
+ * <p>Results are the same as the accumulo-access {@code AccessEvaluator}: invalid expressions are
+ * rejected with an {@link IllegalArgumentException}.
+ *
+ * <p>{@link #canAccess(String)} keeps the programs of the most recently used expressions, so that
+ * callers which evaluate each distinct label once per segment without a verdict cache compile it
+ * once per query. The evaluator can be shared by threads.
+ */
+public final class BitmaskAccessEvaluator {
+  public static final int DEFAULT_PROGRAM_CACHE_SIZE = 1024;
+
+  private final AuthorizationDictionary dictionary;
+  private final long[] authorizationMask;
+  private final int programCacheSize;
+  // guarded by itself
+  private final Map<String, Program> programs;
+
+  public BitmaskAccessEvaluator(Collection<String> authorizations) {
+    this(AuthorizationDictionary.of(authorizations), authorizations);
+  }
+
+  /**
+   * Creates an evaluator for a subset of the tokens of a shared dictionary, e.g. to evaluate the
+   * same compiled programs against several authorization sets.
+   */
+  public BitmaskAccessEvaluator(
+      AuthorizationDictionary dictionary, Collection<String> authorizations) {
+    this(dictionary, authorizations, DEFAULT_PROGRAM_CACHE_SIZE);
+  }
+
+  /** Creates an evaluator that keeps the programs of up to {@code programCacheSize} expressions. */
+  public BitmaskAccessEvaluator(
+      AuthorizationDictionary dictionary, Collection<String> authorizations, int programCacheSize) {
+    if (programCacheSize < 0) {
+      throw new IllegalArgumentException(
+          String.format("Program cache size must be non-negative but was [%d]", programCacheSize));
+    }
+
+    this.dictionary = dictionary;
+    this.authorizationMask = dictionary.mask(authorizations);
+    this.programCacheSize = programCacheSize;
+    this.programs =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+            return size() > BitmaskAccessEvaluator.this.programCacheSize;
+          }
+        };
+  }
+
+  public AuthorizationDictionary dictionary() {
+    return dictionary;
+  }
+
+  public boolean canAccess(String expression) {
+    return program(expression).evaluate(authorizationMask);
+  }
+
+  public boolean canAccess(Program program) {
+    return program.evaluate(authorizationMask);
+  }
+
+  /**
+   * Returns the program of the expression, which is compiled on the first use and kept while it is
+   * among the most recently used ones.
+   */
+  public Program program(String expression) {
+    if (programCacheSize == 0) {
+      return compile(expression);
+    }
+
+    Program program;
+
+    synchronized (programs) {
+      program = programs.get(expression);
+    }
+
+    if (program == null) {
+      // compiled outside the lock, threads racing on the same expression compile equal programs
+      program = compile(expression);
+
+      synchronized (programs) {
+        programs.put(expression, program);
+      }
+    }
+
+    return program;
+  }
+
+  /** Compiles the expression against the dictionary of this evaluator. */
+  public Program compile(String expression) {
+    return Program.compile(AccessExpressionParser.parse(expression), dictionary);
+  }
+
+  /**
+   * A compiled access expression. Nodes are stored in flat arrays in breadth first order, so node
+   * 0 is the root and the children of a node are contiguous.
+   */
+  public static final class Program {
+    private final boolean[] and;
+    // tokens of node i occupy words [i * words, (i + 1) * words)
+    private final long[] tokenMasks;
+    // an 'AND' node with a token outside of the dictionary can never pass
+    private final boolean[] unknownToken;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int words;
+
+    private Program(
+        boolean[] and,
+        long[] tokenMasks,
+        boolean[] unknownToken,
+        int[] firstChild,
+        int[] childCount,
+        int words) {
+      this.and = and;
+      this.tokenMasks = tokenMasks;
+      this.unknownToken = unknownToken;
+      this.firstChild = firstChild;
+      this.childCount = childCount;
+      this.words = words;
+    }
+
+    public static Program compile(
+        AccessExpressionParser.Node root, AuthorizationDictionary dictionary) {
+      List<AccessExpressionParser.Node> nodes = new ArrayList<>();
+      nodes.add(root);
+
+      // breadth first, so that the children of each node are contiguous
+      for (int i = 0; i < nodes.size(); i++) {
+        nodes.addAll(nodes.get(i).children());
+      }
+
+      int words = dictionary.words();
+      boolean[] and = new boolean[nodes.size()];
+      long[] tokenMasks = new long[nodes.size() * words];
+      boolean[] unknownToken = new boolean[nodes.size()];
+      int[] firstChild = new int[nodes.size()];
+      int[] childCount = new int[nodes.size()];
+      int next = 1;
+
+      for (int i = 0; i < nodes.size(); i++) {
+        AccessExpressionParser.Node node = nodes.get(i);
+        and[i] = node.isAnd();
+
+        for (String token : node.tokens()) {
+          int id = dictionary.id(token);
+
+          if (id < 0) {
+            unknownToken[i] = true;
+          } else {
+            tokenMasks[i * words + (id >>> 6)] |= 1L << id;
+          }
+        }
+
+        firstChild[i] = next;
+        childCount[i] = node.children().size();
+        next += childCount[i];
+      }
+
+      return new Program(and, tokenMasks, unknownToken, firstChild, childCount, words);
+    }
+
+    /** Returns whether the authorizations of the mask satisfy the expression. */
+    public boolean evaluate(long[] authorizationMask) {
+      return evaluate(0, authorizationMask);
+    }
+
+    private boolean evaluate(int node, long[] authorizationMask) {
+      int offset = node * words;
+
+      if (and[node]) {
+        if (unknownToken[node]) {
+          return false;
+        }
+
+        for (int w = 0; w < words; w++) {
+          if ((authorizationMask[w] & tokenMasks[offset + w]) != tokenMasks[offset + w]) {
+            return false;
+          }
+        }
+
+        for (int c = 0; c < childCount[node]; c++) {
+          if (!evaluate(firstChild[node] + c, authorizationMask)) {
+            return false;
+          }
+        }
+
+        return true;
+      }
+
+      for (int w = 0; w < words; w++) {
+        if ((authorizationMask[w] & tokenMasks[offset + w]) != 0) {
+          return true;
+        }
+      }
+
+      for (int c = 0; c < childCount[node]; c++) {
+        if (evaluate(firstChild[node] + c, authorizationMask)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.apache.accumulo.access.AccessExpression;
+
+/**
+ * A batch of labels evaluated against several authorization sets at once. Every distinct label is
+ * evaluated once per authorization set, and the distinct labels are split into slices that are
+ * evaluated in parallel.
+ *
+ * <p>The verdicts, and the parse errors of invalid labels, can be read once the future returned
+ * by {@link #evaluate} completes.
+ */
+public final class LabelBatch {
+  private final List<String> labels;
+  private final List<LabelEvaluator> evaluators;
+  // the distinct labels, and the index of each item's label among them or -1 if it has none
+  private final String[] distinctLabels;
+  private final int[] distinctIndex;
+  // verdicts[distinct * evaluators.size() + set]
+  private final boolean[] verdicts;
+  // the parse error of each distinct label, or null if it is valid
+  private final String[] errors;
+
+  /**
+   * Creates a batch of labels, a null label standing for an item without label.
+   *
+   * @param evaluators one evaluator per authorization set, only used to create copies
+   */
+  public LabelBatch(List<String> labels, List<LabelEvaluator> evaluators) {
+    this.labels = labels;
+    this.evaluators = List.copyOf(evaluators);
+    this.distinctIndex = new int[labels.size()];
+
+    Map<String, Integer> indexes = new HashMap<>();
+    List<String> distinct = new ArrayList<>();
+
+    for (int i = 0; i < labels.size(); i++) {
+      String label = labels.get(i);
+
+      if (label == null) {
+        distinctIndex[i] = -1;
+        continue;
+      }
+
+      distinctIndex[i] =
+          indexes.computeIfAbsent(
+              label,
+              key -> {
+                distinct.add(key);
+                return distinct.size() - 1;
+              });
+    }
+
+    this.distinctLabels = distinct.toArray(new String[0]);
+    this.verdicts = new boolean[distinctLabels.length * this.evaluators.size()];
+    this.errors = new String[distinctLabels.length];
+  }
+
+  /**
+   * Evaluates the distinct labels in up to {@code slices} parallel tasks run by the executor.
+   *
+   * @return a future completed with this batch once every verdict is known
+   */
+  public CompletableFuture<LabelBatch> evaluate(Executor executor, int slices) {
+    int sliceSize = Math.max(1, (distinctLabels.length + slices - 1) / Math.max(1, slices));
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+    for (int start = 0; start < distinctLabels.length; start += sliceSize) {
+      int from = start;
+      int to = Math.min(distinctLabels.length, start + sliceSize);
+      tasks.add(CompletableFuture.runAsync(() -> evaluate(from, to), executor));
+    }
+
+    return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+        .thenApply(ignored -> this);
+  }
+
+  private void evaluate(int from, int to) {
+    int sets = evaluators.size();
+
+    for (int set = 0; set < sets; set++) {
+      // the labels are distinct, so the verdicts are not cached
+      LabelEvaluator evaluator = evaluators.get(set).withEmptyCache(0);
+
+      for (int i = from; i < to; i++) {
+        verdicts[i * sets + set] = evaluator.canAccess(distinctLabels[i]);
+      }
+    }
+
+    for (int i = from; i < to; i++) {
+      if (!accessible(i)) {
+        // an invalid label is never accessible, so only these labels need to be validated
+        try {
+          AccessExpression.of(distinctLabels[i]);
+        } catch (IllegalArgumentException e) {
+          errors[i] = e.getMessage();
+        }
+      }
+    }
+  }
+
+  private boolean accessible(int distinct) {
+    int sets = evaluators.size();
+
+    for (int set = 0; set < sets; set++) {
+      if (verdicts[distinct * sets + set]) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /** Returns the number of items of the batch. */
+  public int size() {
+    return labels.size();
+  }
+
+  /** Returns the number of distinct labels of the batch. */
+  public int distinctLabels() {
+    return distinctLabels.length;
+  }
+
+  /** Returns the number of authorization sets the labels are evaluated against. */
+  public int authorizationSets() {
+    return evaluators.size();
+  }
+
+  /** Returns the label of the item, or null if it has none. */
+  public String label(int item) {
+    return labels.get(item);
+  }
+
+  /** Returns why the label of the item is not a valid access expression, or null if it is. */
+  public String error(int item) {
+    int distinct = distinctIndex[item];
+    return distinct >= 0 ? errors[distinct] : null;
+  }
+
+  /** Returns whether the label of the item is accessible with the authorization set. */
+  public boolean canAccess(int item, int authorizationSet) {
+    int distinct = distinctIndex[item];
+    return distinct >= 0 && verdicts[distinct * evaluators.size() + authorizationSet];
+  }
+}
@@ -0,0 +1,129 @@
+package com.elasticsearch.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.Authorizations;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Evaluates label expressions against a fixed set of authorizations. The authorizations are parsed
+ * once and verdicts are cached per distinct label, so repeated labels are only parsed and
+ * evaluated once.
+ *
+ * <p>The verdict cache is not thread-safe, so an evaluator must only be used by one thread at a
+ * time. {@link #withEmptyCache()} creates evaluators for other threads, e.g. one per segment when
+ * segments are searched concurrently, which share the immutable parsed authorizations. {@link
+ * #withSharedCache(LabelVerdictCache)} also lets them share their verdicts.
+ */
+public class LabelEvaluator {
+  private static final Logger logger = LogManager.getLogger(LabelEvaluator.class);
+
+  /** The implementation used to evaluate label expressions. */
+  public enum Type {
+    /** The accumulo-access {@link AccessEvaluator}. */
+    ACCUMULO,
+    /** The {@link BitmaskAccessEvaluator}, which compiles expressions into bit mask programs. */
+    BITMASK
+  }
+
+  private final Predicate<String> evaluator;
+  private final LabelVerdictCache verdictCache;
+  // looked up on misses of the own cache, or null
+  private final LabelVerdictCache sharedCache;
+  private final AccessStats stats;
+
+  public LabelEvaluator(Collection<String> authorizations, int verdictCacheSize) {
+    this(authorizations, Type.ACCUMULO, verdictCacheSize, new AccessStats());
+  }
+
+  public LabelEvaluator(
+      Collection<String> authorizations, Type type, int verdictCacheSize, AccessStats stats) {
+    // validates the authorizations the same way for every type
+    AccessEvaluator accessEvaluator =
+        AccessEvaluator.of(Authorizations.of(new LinkedHashSet<>(authorizations)));
+
+    if (type == Type.BITMASK) {
+      this.evaluator = new BitmaskAccessEvaluator(authorizations)::canAccess;
+    } else {
+      this.evaluator = accessEvaluator::canAccess;
+    }
+
+    this.verdictCache = new LabelVerdictCache(verdictCacheSize);
+    this.sharedCache = null;
+    this.stats = stats;
+  }
+
+  private LabelEvaluator(
+      Predicate<String> evaluator,
+      int verdictCacheSize,
+      LabelVerdictCache sharedCache,
+      AccessStats stats) {
+    this.evaluator = evaluator;
+    this.verdictCache = new LabelVerdictCache(verdictCacheSize);
+    this.sharedCache = sharedCache;
+    this.stats = stats;
+  }
+
+  /** Returns an evaluator for the same authorizations with its own, empty verdict cache. */
+  public LabelEvaluator withEmptyCache() {
+    return withEmptyCache(verdictCache.maxSize());
+  }
+
+  /** Returns an evaluator for the same authorizations with an empty cache of the given size. */
+  public LabelEvaluator withEmptyCache(int verdictCacheSize) {
+    return new LabelEvaluator(evaluator, verdictCacheSize, null, stats);
+  }
+
+  /**
+   * Returns an evaluator for the same authorizations with its own, empty verdict cache, which
+   * looks up its misses in {@code sharedCache} before evaluating them. Evaluators of different
+   * threads may share a cache created by {@link LabelVerdictCache#concurrent(int)}, so that each
+   * distinct label is evaluated once across them.
+   */
+  public LabelEvaluator withSharedCache(LabelVerdictCache sharedCache) {
+    return new LabelEvaluator(evaluator, verdictCache.maxSize(), sharedCache, stats);
+  }
+
+  /** Splits a comma separated authorization string into its distinct authorizations. */
+  public static List<String> parseAuthorizations(String authorizations) {
+    Set<String> set = new LinkedHashSet<>(Arrays.asList(authorizations.split(",")));
+    return List.copyOf(set);
+  }
+
+  /** Returns whether the label is accessible. Invalid labels are never accessible. */
+  public boolean canAccess(String label) {
+    boolean canAccess = verdictCache.canAccess(label, this::lookup);
+    stats.recordEvaluation(canAccess);
+    return canAccess;
+  }
+
+  public LabelVerdictCache verdictCache() {
+    return verdictCache;
+  }
+
+  private boolean lookup(String label) {
+    return sharedCache == null ? evaluate(label) : sharedCache.canAccess(label, this::evaluate);
+  }
+
+  private boolean evaluate(String label) {
+    stats.recordCacheMiss();
+
+    try {
+      boolean canAccess = evaluator.test(label);
+
+      logger.debug("label:{}, canAccess?:{}", label, canAccess);
+
+      return canAccess;
+    } catch (Exception e) {
+      logger.debug("Failed to process label [{}], error:{}", label, e.getMessage());
+      stats.recordParseError(label, e.getMessage());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Explains the verdict of a label: which of its tokens are authorizations and how the 'AND' and
+ * 'OR' nodes of the expression combine them.
+ *
+ * <pre>
+ * label [(IFSR|SDGT)&amp;NPWMD] is not accessible
+ *   all of: false
+ *     token [NPWMD] is not an authorization
+ *     any of: true
+ *       token [IFSR] is an authorization
+ *       token [SDGT] is not an authorization
+ * </pre>
+ */
+public final class LabelExplanation {
+  private final boolean accessible;
+  private final String description;
+  private final List<LabelExplanation> details;
+
+  private LabelExplanation(boolean accessible, String description, List<LabelExplanation> details) {
+    this.accessible = accessible;
+    this.description = description;
+    this.details = details;
+  }
+
+  /** Explains the label. Invalid labels are never accessible. */
+  public static LabelExplanation explain(String label, Collection<String> authorizations) {
+    AccessExpressionParser.Node node;
+
+    try {
+      node = AccessExpressionParser.parse(label);
+    } catch (IllegalArgumentException e) {
+      return new LabelExplanation(
+          false, String.format("label [%s] is invalid: %s", label, e.getMessage()), List.of());
+    }
+
+    return explain(String.format("label [%s]", label), node, authorizations);
+  }
+
+  /** Explains an already parsed label, e.g. one decoded from a {@link BinaryAccessExpression}. */
+  public static LabelExplanation explain(
+      String label, AccessExpressionParser.Node node, Collection<String> authorizations) {
+    LabelExplanation root = explain(node, Set.copyOf(authorizations));
+    return new LabelExplanation(
+        root.accessible,
+        String.format("%s is %s", label, root.accessible ? "accessible" : "not accessible"),
+        List.of(root));
+  }
+
+  private static LabelExplanation explain(
+      AccessExpressionParser.Node node, Set<String> authorizations) {
+    boolean and = node.isAnd();
+    boolean accessible = and;
+    List<LabelExplanation> details = new ArrayList<>();
+
+    for (String token : node.tokens()) {
+      boolean authorized = authorizations.contains(token);
+      String verdict = authorized ? "an authorization" : "not an authorization";
+      details.add(
+          new LabelExplanation(
+              authorized, String.format("token [%s] is %s", token, verdict), List.of()));
+      accessible = and ? accessible && authorized : accessible || authorized;
+    }
+
+    for (AccessExpressionParser.Node child : node.children()) {
+      LabelExplanation explanation = explain(child, authorizations);
+      details.add(explanation);
+      accessible =
+          and ? accessible && explanation.accessible : accessible || explanation.accessible;
+    }
+
+    return new LabelExplanation(
+        accessible, String.format("%s: %s", and ? "all of" : "any of", accessible), details);
+  }
+
+  public boolean isAccessible() {
+    return accessible;
+  }
+
+  public String description() {
+    return description;
+  }
+
+  public List<LabelExplanation> details() {
+    return details;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    append(builder, 0);
+    return builder.toString();
+  }
+
+  private void append(StringBuilder builder, int depth) {
+    builder.append("  ".repeat(depth)).append(description).append('\n');
+
+    for (LabelExplanation detail : details) {
+      detail.append(builder, depth + 1);
+    }
+  }
+}
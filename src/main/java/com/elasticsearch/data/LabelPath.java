@@ -0,0 +1,345 @@
+package com.elasticsearch.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A label field compiled once into the sequence of keys {@link LabelExtractor#extract} looks up
+ * while drilling down into a document, so that the field does not have to be split and joined
+ * again for every document and nesting level.
+ *
+ * <p>A compiled path is immutable and can be shared. Labels are extracted with an {@link
+ * Extractor}, which writes them into a reusable buffer and must only be used by one thread.
+ */
+public final class LabelPath {
+  private static final Logger logger = LogManager.getLogger(LabelPath.class);
+
+  private final String labelField;
+  private final LabelExtractor.Policy policy;
+  // keys[i] is the remaining label field looked up as is at nesting level i
+  private final String[] keys;
+  // heads[i] is the first part of keys[i], or null when there is nothing to drill down into
+  private final String[] heads;
+
+  private LabelPath(String labelField, LabelExtractor.Policy policy) {
+    this.labelField = labelField;
+    this.policy = policy;
+
+    List<String> keyList = new ArrayList<>();
+    List<String> headList = new ArrayList<>();
+    String key = labelField;
+
+    while (true) {
+      keyList.add(key);
+      String[] parts = key.split("\\.");
+
+      // a key without a nested part can only ever match as a whole
+      if (parts.length == 0 || (parts.length == 1 && parts[0].equals(key))) {
+        headList.add(null);
+        break;
+      }
+
+      headList.add(parts[0]);
+      key = String.join(".", Arrays.copyOfRange(parts, 1, parts.length));
+    }
+
+    this.keys = keyList.toArray(new String[0]);
+    this.heads = headList.toArray(new String[0]);
+  }
+
+  public static LabelPath compile(String labelField, LabelExtractor.Policy policy) {
+    return new LabelPath(labelField, policy);
+  }
+
+  public String labelField() {
+    return labelField;
+  }
+
+  public LabelExtractor.Policy policy() {
+    return policy;
+  }
+
+  /** Returns the number of nesting levels the path drills down into. */
+  public int levels() {
+    return keys.length;
+  }
+
+  /** Returns the remaining label field that is looked up as is at the nesting level. */
+  public String key(int level) {
+    return keys[level];
+  }
+
+  /** Returns the field drilled down into at the nesting level, or null if there is none. */
+  public String head(int level) {
+    return heads[level];
+  }
+
+  /** Creates an extractor with its own reusable buffer. */
+  public Extractor extractor() {
+    return new Extractor();
+  }
+
+  /** Extracts labels for a compiled path. Not thread safe. */
+  public final class Extractor {
+    private final StringBuilder buffer = new StringBuilder();
+    // start and end offsets of the distinct pieces of the groups currently being joined
+    private int[] pieces = new int[16];
+    private int piecesSize;
+
+    private Extractor() {}
+
+    /**
+     * Extracts the label of the document into the reusable buffer.
+     *
+     * @return the label, which is only valid until the next call, or null if there is none
+     */
+    public CharSequence extractLabel(Map<String, Object> data) {
+      buffer.setLength(0);
+      piecesSize = 0;
+
+      return extract(data, 0, policy) ? buffer : null;
+    }
+
+    /** Extracts the label of the document, same as {@link LabelExtractor#extract}. */
+    public Optional<String> extract(Map<String, Object> data) {
+      CharSequence label = extractLabel(data);
+      return label == null ? Optional.empty() : Optional.of(label.toString());
+    }
+
+    private boolean extract(Map<?, ?> data, int level, LabelExtractor.Policy policy) {
+      String key = keys[level];
+
+      // if label field exists
+      if (data.containsKey(key)) {
+        return appendValue(data.get(key), key, policy);
+      }
+
+      String head = heads[level];
+
+      if (head == null || !data.containsKey(head)) {
+        logger.debug("label field [{}] does not exist", head == null ? key : head);
+        return false;
+      }
+
+      Object value = data.get(head);
+
+      // nested fields are extracted without applying the policy, same as LabelExtractor
+      if (value instanceof Map) {
+        return extract((Map<?, ?>) value, level + 1, LabelExtractor.Policy.NONE);
+      }
+
+      if (value instanceof List) {
+        List<?> list = (List<?>) value;
+
+        if (!list.isEmpty() && list.get(0) instanceof Map) {
+          int group = piecesSize;
+
+          for (Object item : list) {
+            if (!(item instanceof Map)) {
+              continue;
+            }
+
+            int separatorStart = startPiece(group, '|');
+
+            if (extract((Map<?, ?>) item, level + 1, LabelExtractor.Policy.NONE)) {
+              endPiece(group, separatorStart);
+            } else {
+              buffer.setLength(separatorStart);
+            }
+          }
+
+          return endGroup(group);
+        }
+      }
+
+      // For everything else, return nothing.
+      return false;
+    }
+
+    private boolean appendValue(Object value, String key, LabelExtractor.Policy policy) {
+      if (value instanceof String) {
+        appendLabel((String) value, policy);
+        return true;
+      }
+
+      if (value instanceof Number) {
+        appendNumber((Number) value);
+        return true;
+      }
+
+      // if value is an array, 'OR' the distinct elements in the array
+      if (value instanceof List) {
+        int group = piecesSize;
+
+        for (Object item : (List<?>) value) {
+          if (!(item instanceof String) && !(item instanceof Number)) {
+            continue;
+          }
+
+          int separatorStart = startPiece(group, '|');
+
+          if (item instanceof String) {
+            appendLabel((String) item, policy);
+          } else {
+            appendNumber((Number) item);
+          }
+
+          endPiece(group, separatorStart);
+        }
+
+        return endGroup(group);
+      }
+
+      // for everything else, return nothing.
+      logger.debug(
+          "label field [{}] is expected to contain either String, Number or Array but is type of [{}]",
+          key,
+          value == null ? "null" : value.getClass().getSimpleName());
+      return false;
+    }
+
+    private void appendNumber(Number number) {
+      if (number instanceof Integer || number instanceof Long) {
+        buffer.append(number.longValue());
+      } else if (number instanceof Double) {
+        buffer.append(number.doubleValue());
+      } else {
+        buffer.append(number);
+      }
+    }
+
+    /**
+     * Appends the label the same way as {@link LabelExtractor#sanitizeLabel(String,
+     * LabelExtractor.Policy)}.
+     */
+    private void appendLabel(String label, LabelExtractor.Policy policy) {
+      switch (policy) {
+        case SPLIT_OR:
+          appendSplit(label, '|');
+          break;
+        case SPLIT_AND:
+          appendSplit(label, '&');
+          break;
+        case RAW:
+          buffer.append(label);
+          break;
+        case NONE:
+        default:
+          appendSanitized(label, 0, label.length());
+      }
+    }
+
+    /** Splits the label on ',' with the semantics of {@link String#split(String)}. */
+    private void appendSplit(String label, char separator) {
+      int comma = label.indexOf(',');
+
+      if (comma < 0) {
+        appendSanitized(label, 0, label.length());
+        return;
+      }
+
+      // String.split drops trailing empty strings
+      int end = label.length();
+
+      while (end > 0 && label.charAt(end - 1) == ',') {
+        end--;
+      }
+
+      int group = piecesSize;
+      int start = 0;
+
+      while (start < end) {
+        int next = label.indexOf(',', start);
+
+        if (next < 0 || next > end) {
+          next = end;
+        }
+
+        int separatorStart = startPiece(group, separator);
+        appendSanitized(label, start, next);
+        endPiece(group, separatorStart);
+        start = next + 1;
+      }
+
+      // a label of only commas splits into nothing, which joins to an empty label
+      endGroup(group);
+    }
+
+    /** Appends the label the same way as {@link LabelExtractor#sanitizeString(String)}. */
+    private void appendSanitized(String label, int start, int end) {
+      while (start < end && label.charAt(start) <= ' ') {
+        start++;
+      }
+
+      while (end > start && label.charAt(end - 1) <= ' ') {
+        end--;
+      }
+
+      if (label.indexOf(' ', start) >= 0 && label.indexOf(' ', start) < end) {
+        buffer.append('"').append(label, start, end).append('"');
+      } else {
+        buffer.append(label, start, end);
+      }
+    }
+
+    /** Appends the separator if the group already has a piece and returns where it starts. */
+    private int startPiece(int group, char separator) {
+      int separatorStart = buffer.length();
+
+      if (piecesSize > group) {
+        buffer.append(separator);
+      }
+
+      return separatorStart;
+    }
+
+    /**
+     * Adds the piece appended since {@link #startPiece} to the group, or removes it again together
+     * with its separator if the group already has an equal piece.
+     */
+    private void endPiece(int group, int separatorStart) {
+      int start = piecesSize > group ? separatorStart + 1 : separatorStart;
+      int end = buffer.length();
+
+      for (int i = group; i < piecesSize; i += 2) {
+        if (regionEquals(pieces[i], pieces[i + 1], start, end)) {
+          buffer.setLength(separatorStart);
+          return;
+        }
+      }
+
+      if (piecesSize + 2 > pieces.length) {
+        pieces = Arrays.copyOf(pieces, pieces.length * 2);
+      }
+
+      pieces[piecesSize++] = start;
+      pieces[piecesSize++] = end;
+    }
+
+    /** Ends the group and returns whether it had any piece. */
+    private boolean endGroup(int group) {
+      boolean hasPieces = piecesSize > group;
+      piecesSize = group;
+      return hasPieces;
+    }
+
+    private boolean regionEquals(int start1, int end1, int start2, int end2) {
+      if (end1 - start1 != end2 - start2) {
+        return false;
+      }
+
+      for (int i = 0; i < end1 - start1; i++) {
+        if (buffer.charAt(start1 + i) != buffer.charAt(start2 + i)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+}
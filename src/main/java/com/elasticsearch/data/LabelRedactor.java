@@ -0,0 +1,89 @@
+package com.elasticsearch.data;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes the elements of a document the user cannot see, based on a label of each element. The
+ * elements are the objects at {@code path}, e.g. the entries of an array like {@code
+ * identity_documents}, and their labels are extracted with a {@link LabelPath} relative to the
+ * element. Elements without a label are removed.
+ *
+ * <p>A redactor reuses its extractor across documents and must only be used by one thread at a
+ * time.
+ */
+public final class LabelRedactor {
+  private final String path;
+  private final String[] keys;
+  private final LabelPath.Extractor extractor;
+
+  public LabelRedactor(String path, String labelField, LabelExtractor.Policy policy) {
+    this.path = path;
+    this.keys = path.split("\\.");
+    this.extractor = LabelPath.compile(labelField, policy).extractor();
+  }
+
+  public String path() {
+    return path;
+  }
+
+  /**
+   * Removes the inaccessible elements from the document, which must be mutable.
+   *
+   * @return the number of removed elements
+   */
+  public int redact(Map<String, Object> document, LabelEvaluator evaluator) {
+    return redact(document, 0, evaluator);
+  }
+
+  private int redact(Map<?, ?> data, int level, LabelEvaluator evaluator) {
+    Object value = data.get(keys[level]);
+
+    if (level == keys.length - 1) {
+      if (value instanceof Map && !canAccess((Map<?, ?>) value, evaluator)) {
+        data.remove(keys[level]);
+        return 1;
+      }
+
+      if (value instanceof List) {
+        int removed = 0;
+
+        for (Iterator<?> it = ((List<?>) value).iterator(); it.hasNext(); ) {
+          Object element = it.next();
+
+          if (element instanceof Map && !canAccess((Map<?, ?>) element, evaluator)) {
+            it.remove();
+            removed++;
+          }
+        }
+
+        return removed;
+      }
+
+      return 0;
+    }
+
+    if (value instanceof Map) {
+      return redact((Map<?, ?>) value, level + 1, evaluator);
+    }
+
+    int removed = 0;
+
+    if (value instanceof List) {
+      for (Object element : (List<?>) value) {
+        if (element instanceof Map) {
+          removed += redact((Map<?, ?>) element, level + 1, evaluator);
+        }
+      }
+    }
+
+    return removed;
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean canAccess(Map<?, ?> element, LabelEvaluator evaluator) {
+    CharSequence label = extractor.extractLabel((Map<String, Object>) element);
+    return label != null && evaluator.canAccess(label.toString());
+  }
+}
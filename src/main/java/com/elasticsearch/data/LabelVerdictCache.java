@@ -0,0 +1,103 @@
+package com.elasticsearch.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of access verdicts keyed by label expression. Least recently used labels are
+ * evicted once the cache holds {@code maxSize} entries. A {@code maxSize} of 0 disables caching.
+ *
+ * <p>The cache is not thread-safe, {@link #concurrent(int)} creates one that is.
+ */
+public class LabelVerdictCache {
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final int maxSize;
+  private final Map<String, Boolean> verdicts;
+  private long hits;
+  private long misses;
+
+  public LabelVerdictCache(int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException(
+          String.format("Verdict cache size must be non-negative but was [%d]", maxSize));
+    }
+
+    this.maxSize = maxSize;
+    this.verdicts =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > LabelVerdictCache.this.maxSize;
+          }
+        };
+  }
+
+  /**
+   * Returns a cache that can be shared by threads, e.g. by the segments of a query that are
+   * searched concurrently. Lookups are serialized, so it should back per thread caches rather than
+   * be read for every document.
+   */
+  public static LabelVerdictCache concurrent(int maxSize) {
+    return new LabelVerdictCache(maxSize) {
+      @Override
+      public synchronized boolean canAccess(String label, Predicate<String> evaluator) {
+        return super.canAccess(label, evaluator);
+      }
+
+      @Override
+      public synchronized int size() {
+        return super.size();
+      }
+
+      @Override
+      public synchronized long hits() {
+        return super.hits();
+      }
+
+      @Override
+      public synchronized long misses() {
+        return super.misses();
+      }
+    };
+  }
+
+  /**
+   * Returns the cached verdict for the label, evaluating it with {@code evaluator} on a miss.
+   */
+  public boolean canAccess(String label, Predicate<String> evaluator) {
+    if (maxSize == 0) {
+      misses++;
+      return evaluator.test(label);
+    }
+
+    Boolean verdict = verdicts.get(label);
+
+    if (verdict != null) {
+      hits++;
+      return verdict;
+    }
+
+    misses++;
+    boolean canAccess = evaluator.test(label);
+    verdicts.put(label, canAccess);
+    return canAccess;
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    return verdicts.size();
+  }
+
+  public long hits() {
+    return hits;
+  }
+
+  public long misses() {
+    return misses;
+  }
+}
@@ -0,0 +1,358 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelPath;
+import com.elasticsearch.data.LabelVerdictCache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.script.DocReader;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.script.FilterScript.LeafFactory;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.lookup.Source;
+
+/**
+ * Creates the {@code accumulo-access} filter scripts of a query, one per segment. The factory only
+ * holds immutable state. Every script gets its own evaluator and extractor, so segments can be
+ * searched concurrently without sharing mutable state.
+ *
+ * <p>{@code labelField} is either a single field or a list of fields, each with its own policy
+ * when {@code labelExtractionPolicy} is a list too. The labels of all fields are read from a
+ * single read of the document and their verdicts are combined with {@code labelCombination},
+ * stopping at the first field that decides the result.
+ */
+class ABACAccessLeafFactory implements LeafFactory {
+  private static final Logger logger = LogManager.getLogger(ABACAccessLeafFactory.class);
+
+  static final String LABEL_FIELD_NAME = "labelField";
+  static final String AUTHORIZATIONS_FIELD_NAME = "authorizations";
+  static final String AUTHORIZATION_PROFILE = "authorizationProfile";
+  static final String LABEL_EXTRACTION_POLICY = "labelExtractionPolicy";
+  static final String VERDICT_CACHE_SIZE = "verdictCacheSize";
+  static final String LABEL_SOURCE = "labelSource";
+  static final String EVALUATOR = "evaluator";
+  static final String LABEL_COMBINATION = "labelCombination";
+
+  /** A label field with its extraction policy and compiled path. */
+  private static final class LabelField {
+    private final String name;
+    private final LabelExtractor.Policy policy;
+    private final LabelPath path;
+    private final boolean useDocValues;
+
+    private LabelField(String name, LabelExtractor.Policy policy, boolean useDocValues) {
+      this.name = name;
+      this.policy = policy;
+      this.path = LabelPath.compile(name, policy);
+      this.useDocValues = useDocValues;
+    }
+  }
+
+  private final Map<String, Object> params;
+  private final SearchLookup lookup;
+  private final LabelField[] labelFields;
+  private final LabelCombination combination;
+  private final PartialSourceReader partialSourceReader;
+  private final LabelEvaluator evaluator;
+  // the verdicts of the query, shared by the scripts of segments that may run concurrently
+  private final LabelVerdictCache sharedVerdicts;
+  private final AccessStats stats;
+
+  ABACAccessLeafFactory(
+      Map<String, Object> params,
+      SearchLookup lookup,
+      AccessStats stats,
+      AuthorizationProfiles authorizationProfiles) {
+    params.forEach((k, v) -> logger.debug("param, key:{}, value:{}", k, v));
+
+    if (!params.containsKey(LABEL_FIELD_NAME)) {
+      throw new IllegalArgumentException(String.format("Missing parameter [%s]", LABEL_FIELD_NAME));
+    }
+
+    boolean hasProfile = params.containsKey(AUTHORIZATION_PROFILE);
+
+    if (params.containsKey(AUTHORIZATIONS_FIELD_NAME) == hasProfile) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Requires either parameter [%s] or [%s]",
+              AUTHORIZATIONS_FIELD_NAME,
+              AUTHORIZATION_PROFILE));
+    }
+
+    List<String> fieldNames = stringList(params, LABEL_FIELD_NAME);
+    List<String> policies =
+        params.containsKey(LABEL_EXTRACTION_POLICY)
+            ? stringList(params, LABEL_EXTRACTION_POLICY)
+            : List.of(LabelExtractor.Policy.NONE.name());
+
+    if (fieldNames.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format("Parameter [%s] must not be empty", LABEL_FIELD_NAME));
+    }
+
+    if (policies.size() != 1 && policies.size() != fieldNames.size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Parameter [%s] must be a single policy or one policy per label field, "
+                  + "but has [%d] policies for [%d] label fields",
+              LABEL_EXTRACTION_POLICY,
+              policies.size(),
+              fieldNames.size()));
+    }
+
+    int verdictCacheSize = LabelVerdictCache.DEFAULT_SIZE;
+
+    if (params.containsKey(VERDICT_CACHE_SIZE)) {
+      try {
+        verdictCacheSize = Integer.parseInt(params.get(VERDICT_CACHE_SIZE).toString());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Parameter [%s] must be an integer but was [%s]",
+                VERDICT_CACHE_SIZE,
+                params.get(VERDICT_CACHE_SIZE)));
+      }
+
+      if (verdictCacheSize < 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Parameter [%s] must be non-negative but was [%d]",
+                VERDICT_CACHE_SIZE,
+                verdictCacheSize));
+      }
+    }
+
+    LabelSource labelSource = LabelSource.SOURCE;
+
+    if (params.containsKey(LABEL_SOURCE)) {
+      labelSource = LabelSource.valueOf((String) params.get(LABEL_SOURCE));
+    }
+
+    LabelEvaluator.Type evaluatorType = LabelEvaluator.Type.ACCUMULO;
+
+    if (params.containsKey(EVALUATOR)) {
+      evaluatorType = LabelEvaluator.Type.valueOf((String) params.get(EVALUATOR));
+    }
+
+    LabelCombination combination = LabelCombination.AND;
+
+    if (params.containsKey(LABEL_COMBINATION)) {
+      combination = LabelCombination.valueOf((String) params.get(LABEL_COMBINATION));
+    }
+
+    this.params = params;
+    this.lookup = lookup;
+    this.stats = stats;
+    this.combination = combination;
+    labelFields = new LabelField[fieldNames.size()];
+
+    for (int i = 0; i < labelFields.length; i++) {
+      String name = fieldNames.get(i);
+      LabelExtractor.Policy policy =
+          LabelExtractor.Policy.valueOf(policies.get(policies.size() == 1 ? 0 : i));
+      labelFields[i] =
+          new LabelField(
+              name, policy, labelSource == LabelSource.DOC_VALUES && hasDocValues(name, policy));
+    }
+
+    partialSourceReader =
+        labelSource == LabelSource.PARTIAL_SOURCE
+            ? new PartialSourceReader(
+                Arrays.stream(labelFields).map(labelField -> labelField.path).toList())
+            : null;
+
+    if (hasProfile) {
+      // the authorizations of a profile are parsed once per node, when the profile changes
+      evaluator =
+          authorizationProfiles
+              .get(params.get(AUTHORIZATION_PROFILE).toString())
+              .evaluator(evaluatorType, verdictCacheSize);
+    } else {
+      // parse the authorizations once per query instead of once per document, the scripts only
+      // copy the parsed evaluator. Invalid authorizations therefore fail the query rather than
+      // deny every document.
+      String authorizations = params.get(AUTHORIZATIONS_FIELD_NAME).toString();
+
+      try {
+        evaluator =
+            new LabelEvaluator(
+                LabelEvaluator.parseAuthorizations(authorizations),
+                evaluatorType,
+                verdictCacheSize,
+                stats);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Parameter [%s] has invalid authorizations [%s]: %s",
+                AUTHORIZATIONS_FIELD_NAME,
+                authorizations,
+                e.getMessage()),
+            e);
+      }
+    }
+
+    sharedVerdicts = LabelVerdictCache.concurrent(verdictCacheSize);
+  }
+
+  /** Returns a param that is either a single string or a list of strings as a list. */
+  private static List<String> stringList(Map<String, Object> params, String name) {
+    Object value = params.get(name);
+
+    if (value instanceof List<?> list) {
+      return list.stream().map(Object::toString).toList();
+    }
+
+    return List.of(value.toString());
+  }
+
+  /** Returns whether the doc values of the label field give the same labels as _source. */
+  private boolean hasDocValues(String labelField, LabelExtractor.Policy policy) {
+    MappedFieldType fieldType = lookup.fieldType(labelField);
+
+    // a normalizer changes the values, so they no longer match the authorizations the same way
+    if (!(fieldType instanceof KeywordFieldMapper.KeywordFieldType keywordFieldType)
+        || !fieldType.hasDocValues()
+        || keywordFieldType.hasNormalizer()) {
+      logger.debug(
+          "label field [{}] is not a keyword field with doc values and without normalizer, "
+              + "reading _source instead",
+          labelField);
+      return false;
+    }
+
+    // _source applies the policy to a label field found as is, but not to the values of nested
+    // objects, and doc values cannot tell the two apart
+    if (labelField.contains(".") && policy != LabelExtractor.Policy.NONE) {
+      logger.debug(
+          "label field [{}] may be nested and its policy [{}] is not applied to nested values, "
+              + "reading _source instead",
+          labelField,
+          policy);
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads the label from the doc values of the label field. Multiple values are 'OR' together the
+   * same way {@link LabelExtractor#extract} handles arrays.
+   *
+   * @return the label, or null if the document has no doc values for the label field
+   */
+  private static String readDocValues(DocReader docReader, LabelField labelField) {
+    LabelExtractor.Policy policy = labelField.policy;
+    ScriptDocValues<?> values = docReader.doc().get(labelField.name);
+
+    if (values == null || values.isEmpty()) {
+      return null;
+    }
+
+    if (values.size() == 1) {
+      return LabelExtractor.sanitizeLabel(values.get(0).toString(), policy);
+    }
+
+    // use LinkedHashSet to keep the ordering
+    Set<String> set = new LinkedHashSet<>();
+
+    for (int i = 0; i < values.size(); i++) {
+      set.add(LabelExtractor.sanitizeLabel(values.get(i).toString(), policy));
+    }
+
+    return String.join("|", set);
+  }
+
+  private Map<String, Object> readSource(DocReader docReader) {
+    Source source = docReader.source().get();
+
+    if (partialSourceReader == null) {
+      return source.source();
+    }
+
+    try {
+      return partialSourceReader.read(source.internalSourceRef(), source.sourceContentType());
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format(
+              "Failed to read label fields %s from _source",
+              Arrays.stream(labelFields).map(labelField -> labelField.name).toList()),
+          e);
+    }
+  }
+
+  @Override
+  public FilterScript newInstance(DocReader docReader) {
+    // the extractors reuse their buffers across the documents of the segment
+    LabelPath.Extractor[] extractors = new LabelPath.Extractor[labelFields.length];
+
+    for (int i = 0; i < extractors.length; i++) {
+      extractors[i] = labelFields[i].path.extractor();
+    }
+
+    LabelEvaluator leafEvaluator = evaluator.withSharedCache(sharedVerdicts);
+    // AND stops at the first denied field, OR at the first accessible one
+    boolean decisive = combination == LabelCombination.OR;
+
+    return new FilterScript(params, lookup, docReader) {
+      // the source of the current document, read at most once for all label fields
+      private Map<String, Object> source;
+
+      @Override
+      public boolean execute() {
+        source = null;
+
+        for (int i = 0; i < labelFields.length; i++) {
+          if (canAccess(labelFields[i], extractors[i]) == decisive) {
+            return decisive;
+          }
+        }
+
+        return !decisive;
+      }
+
+      private boolean canAccess(LabelField labelField, LabelPath.Extractor extractor) {
+        String label = readLabel(labelField, extractor);
+
+        if (label == null) {
+          stats.recordExtractionFailure(labelField.name);
+          return false;
+        }
+
+        // each distinct label is parsed and evaluated once per query, and looked up in the shared
+        // cache once per segment
+        return leafEvaluator.canAccess(label);
+      }
+
+      /** Reads the label of the current document, or returns null if it has none. */
+      private String readLabel(LabelField labelField, LabelPath.Extractor extractor) {
+        if (labelField.useDocValues) {
+          String label = readDocValues(docReader, labelField);
+
+          // values that were not indexed, e.g. because of ignore_above, are only in _source
+          if (label != null) {
+            return label;
+          }
+        }
+
+        if (source == null) {
+          source = readSource(docReader);
+        }
+
+        CharSequence label = extractor.extractLabel(source);
+        return label == null ? null : label.toString();
+      }
+    };
+  }
+}
@@ -0,0 +1,152 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.LabelExtractor;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * A node level cache of the documents each segment grants access to, keyed by segment, label
+ * field, extraction policy and authorization set. Entries of a segment are evicted when the
+ * segment is closed, and the total size of the cached doc sets is bounded by {@link
+ * #SIZE_SETTING}.
+ *
+ * <p>Caching is safe because the access verdict of a document only depends on its label and the
+ * authorizations, and segments are immutable apart from deletions, which are applied by the
+ * searcher on top of the cached doc set.
+ */
+public class AccessBitsetCache implements IndexReader.ClosedListener {
+  private static final Logger logger = LogManager.getLogger(AccessBitsetCache.class);
+
+  public static final Setting<Boolean> ENABLED_SETTING =
+      Setting.boolSetting("accumulo_access.bitset_cache.enabled", false, Property.NodeScope);
+
+  public static final Setting<ByteSizeValue> SIZE_SETTING =
+      Setting.memorySizeSetting("accumulo_access.bitset_cache.size", "1%", Property.NodeScope);
+
+  private record Key(
+      IndexReader.CacheKey segmentKey,
+      String labelField,
+      LabelExtractor.Policy policy,
+      List<String> authorizations) {}
+
+  private final Cache<Key, DocIdSet> cache;
+  // the keys of each open segment, so that closing a segment does not scan the whole cache
+  private final Map<IndexReader.CacheKey, Set<Key>> keysBySegment = new ConcurrentHashMap<>();
+
+  public AccessBitsetCache(Settings settings) {
+    long maxWeight = SIZE_SETTING.get(settings).getBytes();
+
+    this.cache =
+        CacheBuilder.<Key, DocIdSet>builder()
+            .setMaximumWeight(maxWeight)
+            .weigher((key, docIdSet) -> docIdSet.ramBytesUsed())
+            .removalListener(
+                notification -> {
+                  Set<Key> keys = keysBySegment.get(notification.getKey().segmentKey());
+
+                  if (keys != null) {
+                    keys.remove(notification.getKey());
+                  }
+                })
+            .build();
+
+    logger.debug("created access bitset cache with maximum size of [{}] bytes", maxWeight);
+  }
+
+  /**
+   * Returns the cached doc set of the segment, computing it with {@code loader} on a miss. The
+   * authorizations are expected to be normalized, i.e. distinct and sorted.
+   */
+  public DocIdSet getOrCompute(
+      LeafReaderContext context,
+      String labelField,
+      LabelExtractor.Policy policy,
+      List<String> authorizations,
+      CheckedSupplier<DocIdSet, IOException> loader)
+      throws IOException {
+    IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+
+    // readers without a core cache key cannot be invalidated, so do not cache them
+    if (cacheHelper == null) {
+      return loader.get();
+    }
+
+    try {
+      return cache.computeIfAbsent(
+          register(cacheHelper, new Key(cacheHelper.getKey(), labelField, policy, authorizations)),
+          key -> loader.get());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+
+      throw new IllegalStateException("Failed to compute access bitset", e.getCause());
+    }
+  }
+
+  /** Returns the cached doc set of the segment, or null if it is not cached. */
+  public DocIdSet get(
+      LeafReaderContext context,
+      String labelField,
+      LabelExtractor.Policy policy,
+      List<String> authorizations) {
+    IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+
+    if (cacheHelper == null) {
+      return null;
+    }
+
+    return cache.get(new Key(cacheHelper.getKey(), labelField, policy, authorizations));
+  }
+
+  /** Records the key of a segment, listening for the segment to close on its first key. */
+  private Key register(IndexReader.CacheHelper cacheHelper, Key key) {
+    Set<Key> keys = keysBySegment.get(cacheHelper.getKey());
+
+    if (keys == null) {
+      Set<Key> created = ConcurrentHashMap.newKeySet();
+      keys = keysBySegment.putIfAbsent(cacheHelper.getKey(), created);
+
+      if (keys == null) {
+        keys = created;
+        cacheHelper.addClosedListener(this);
+      }
+    }
+
+    keys.add(key);
+    return key;
+  }
+
+  @Override
+  public void onClose(IndexReader.CacheKey segmentKey) {
+    Set<Key> keys = keysBySegment.remove(segmentKey);
+
+    if (keys != null) {
+      keys.forEach(cache::invalidate);
+    }
+  }
+
+  public int count() {
+    return cache.count();
+  }
+
+  public long ramBytesUsed() {
+    return cache.weight();
+  }
+}
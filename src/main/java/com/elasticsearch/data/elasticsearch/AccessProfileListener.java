@@ -0,0 +1,139 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessProfile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.SearchProfileQueryPhaseResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.xcontent.XContentType;
+
+/**
+ * Adds the {@link AccessProfile} of every profiled {@code accumulo_access} query to the {@code
+ * debug} section of the query in the Profile API. The profiles are read once the query phase of
+ * the shard is done, when no segment is searched anymore, so the description of the query does not
+ * depend on how far the search got.
+ */
+class AccessProfileListener implements SearchOperationListener {
+
+  @Override
+  public void onQueryPhase(SearchContext searchContext, long tookInNanos) {
+    QuerySearchResult queryResult = searchContext.queryResult();
+
+    if (searchContext.getProfilers() == null || !queryResult.hasProfileResults()) {
+      return;
+    }
+
+    Map<String, AccessProfile> profiles = profiles(searchContext.query());
+
+    if (profiles.isEmpty()) {
+      return;
+    }
+
+    SearchProfileQueryPhaseResult result = queryResult.consumeProfileResult();
+    List<QueryProfileShardResult> shardResults = new ArrayList<>();
+
+    for (QueryProfileShardResult shardResult : result.getQueryProfileResults()) {
+      shardResults.add(
+          new QueryProfileShardResult(
+              withProfiles(shardResult.getQueryResults(), profiles),
+              shardResult.getRewriteTime(),
+              shardResult.getCollectorResult(),
+              vectorOperationsCount(shardResult)));
+    }
+
+    SearchProfileQueryPhaseResult withProfiles =
+        new SearchProfileQueryPhaseResult(shardResults, result.getAggregationProfileResults());
+    withProfiles.setSearchProfileDfsPhaseResult(result.getSearchProfileDfsPhaseResult());
+    queryResult.profileResults(withProfiles);
+  }
+
+  /** Returns the profiles of the profiled access queries of the query, by their description. */
+  static Map<String, AccessProfile> profiles(Query query) {
+    Map<String, AccessProfile> profiles = new HashMap<>();
+
+    query.visit(
+        new QueryVisitor() {
+          @Override
+          public void visitLeaf(Query leaf) {
+            AccessProfile profile = profile(leaf);
+
+            if (profile != null) {
+              profiles.putIfAbsent(leaf.toString(), profile);
+            }
+          }
+        });
+
+    return profiles;
+  }
+
+  private static AccessProfile profile(Query query) {
+    if (query instanceof AccumuloAccessQuery accessQuery) {
+      return accessQuery.getProfile();
+    }
+
+    if (query instanceof BlockAccessQuery blockQuery) {
+      return blockQuery.getProfile();
+    }
+
+    if (query instanceof BinaryLabelAccessQuery binaryQuery) {
+      return binaryQuery.getProfile();
+    }
+
+    return null;
+  }
+
+  static List<ProfileResult> withProfiles(
+      List<ProfileResult> results, Map<String, AccessProfile> profiles) {
+    List<ProfileResult> withProfiles = new ArrayList<>(results.size());
+
+    for (ProfileResult result : results) {
+      AccessProfile profile = profiles.get(result.getLuceneDescription());
+      Map<String, Object> debug = result.getDebugInfo();
+
+      if (profile != null) {
+        debug = new LinkedHashMap<>(debug);
+        debug.put(
+            "segments", profile.segments().stream().map(AccessProfile.Segment::toMap).toList());
+      }
+
+      withProfiles.add(
+          new ProfileResult(
+              result.getQueryName(),
+              result.getLuceneDescription(),
+              result.getTimeBreakdown(),
+              debug,
+              result.getTime(),
+              withProfiles(result.getProfiledChildren(), profiles)));
+    }
+
+    return withProfiles;
+  }
+
+  /** Returns the vector operations count of the result, which has no getter, or null. */
+  private static Long vectorOperationsCount(QueryProfileShardResult shardResult) {
+    try {
+      Object count =
+          XContentHelper.convertToMap(
+                  XContentHelper.toXContent(shardResult, XContentType.JSON, false),
+                  false,
+                  XContentType.JSON)
+              .v2()
+              .get(QueryProfileShardResult.VECTOR_OPERATIONS_COUNT);
+      return count == null ? null : ((Number) count).longValue();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.elasticsearch.data.elasticsearch;
+
+import org.elasticsearch.action.ActionType;
+
+/** Collects the {@link com.elasticsearch.data.AccessStats} of the nodes of the cluster. */
+public class AccessStatsAction extends ActionType<AccessStatsResponse> {
+  public static final String NAME = "cluster:monitor/accumulo_access/stats";
+  public static final AccessStatsAction INSTANCE = new AccessStatsAction();
+
+  private AccessStatsAction() {
+    super(NAME);
+  }
+}
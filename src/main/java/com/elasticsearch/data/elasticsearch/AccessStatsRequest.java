@@ -0,0 +1,24 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.io.IOException;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.transport.TransportRequest;
+
+/** Requests the access stats of the given nodes, or of all nodes if none are given. */
+public class AccessStatsRequest extends BaseNodesRequest<AccessStatsRequest> {
+
+  public AccessStatsRequest(String... nodesIds) {
+    super(nodesIds);
+  }
+
+  /** The request sent to each node. */
+  public static class NodeRequest extends TransportRequest {
+
+    public NodeRequest() {}
+
+    public NodeRequest(StreamInput in) throws IOException {
+      super(in);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.io.IOException;
+import java.util.List;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+/** The access stats of the nodes, keyed by node id. */
+public class AccessStatsResponse extends BaseNodesResponse<NodeAccessStats>
+    implements ToXContentFragment {
+
+  public AccessStatsResponse(
+      ClusterName clusterName, List<NodeAccessStats> nodes, List<FailedNodeException> failures) {
+    super(clusterName, nodes, failures);
+  }
+
+  @Override
+  protected List<NodeAccessStats> readNodesFrom(StreamInput in) throws IOException {
+    return in.readCollectionAsList(NodeAccessStats::new);
+  }
+
+  @Override
+  protected void writeNodesTo(StreamOutput out, List<NodeAccessStats> nodes) throws IOException {
+    out.writeCollection(nodes);
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.startObject("nodes");
+
+    for (NodeAccessStats node : getNodes()) {
+      builder.startObject(node.getNode().getId());
+      builder.field("name", node.getNode().getName());
+      node.toXContent(builder, params);
+      builder.endObject();
+    }
+
+    builder.endObject();
+    return builder;
+  }
+}
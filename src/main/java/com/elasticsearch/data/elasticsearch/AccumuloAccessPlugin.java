@@ -1,45 +1,180 @@
 package com.elasticsearch.data.elasticsearch;
 
-import static com.elasticsearch.data.LabelExtractor.extract;
-
-import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.AccessStats;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import org.apache.accumulo.access.AccessEvaluator;
-import org.apache.accumulo.access.Authorizations;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.IndexScopedSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsFilter;
+import org.elasticsearch.features.NodeFeature;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.mapper.Mapper;
+import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.plugins.ActionPlugin;
+import org.elasticsearch.plugins.IngestPlugin;
+import org.elasticsearch.plugins.MapperPlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.ScriptPlugin;
-import org.elasticsearch.script.DocReader;
+import org.elasticsearch.plugins.SearchPlugin;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.script.FilterScript;
 import org.elasticsearch.script.FilterScript.LeafFactory;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptEngine;
 import org.elasticsearch.script.ScriptFactory;
+import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.threadpool.ExecutorBuilder;
 
 /** A plugin to apply ABAC access policy to documents */
-public class AccumuloAccessPlugin extends Plugin implements ScriptPlugin {
+public class AccumuloAccessPlugin extends Plugin
+    implements ScriptPlugin, SearchPlugin, IngestPlugin, ActionPlugin, MapperPlugin {
   private static final Logger logger = LogManager.getLogger(AccumuloAccessPlugin.class);
 
-  private static final String LABEL_FIELD_NAME = "labelField";
-  private static final String AUTHORIZATIONS_FIELD_NAME = "authorizations";
-  private static final String LABEL_EXTRACTION_POLICY = "labelExtractionPolicy";
+  public static final String SCRIPT_SOURCE = "accumulo-access";
+  /** The source of the script with authorization profiles, whose results are not request cached. */
+  public static final String PROFILE_SCRIPT_SOURCE = "accumulo-access-profile";
+
+  private final AccessBitsetCache bitsetCache;
+  private final LabelSummaryCache labelSummaries;
+  private final AccessStats stats = new AccessStats();
+  private final AuthorizationProfiles authorizationProfiles = new AuthorizationProfiles(stats);
+
+  public AccumuloAccessPlugin(Settings settings) {
+    if (AccessBitsetCache.ENABLED_SETTING.get(settings)) {
+      bitsetCache = new AccessBitsetCache(settings);
+    } else {
+      bitsetCache = null;
+    }
+
+    if (LabelSummaryCache.MAX_LABELS_SETTING.get(settings) > 0) {
+      labelSummaries = new LabelSummaryCache(settings);
+    } else {
+      labelSummaries = null;
+    }
+  }
+
+  @Override
+  public List<Setting<?>> getSettings() {
+    return List.of(
+        AccessBitsetCache.ENABLED_SETTING,
+        AccessBitsetCache.SIZE_SETTING,
+        LabelSummaryCache.MAX_LABELS_SETTING,
+        LabelSummaryCache.SIZE_SETTING,
+        AuthorizationProfiles.AUTHORIZATIONS_SETTING,
+        RestEvaluateAction.MAX_ITEMS_SETTING);
+  }
+
+  @Override
+  public void onIndexModule(IndexModule indexModule) {
+    indexModule.addSearchOperationListener(new AccessProfileListener());
+  }
 
-  public AccumuloAccessPlugin() {}
+  @Override
+  public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+    return List.of(RestEvaluateAction.executorBuilder(settings));
+  }
+
+  @Override
+  public Collection<?> createComponents(PluginServices services) {
+    authorizationProfiles.register(
+        services.clusterService().getSettings(), services.clusterService().getClusterSettings());
+
+    // bound for injection into the stats transport action
+    return List.of(stats);
+  }
+
+  @Override
+  public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
+    return List.of(
+        new ActionHandler<>(AccessStatsAction.INSTANCE, TransportAccessStatsAction.class));
+  }
+
+  @Override
+  public List<RestHandler> getRestHandlers(
+      Settings settings,
+      NamedWriteableRegistry namedWriteableRegistry,
+      RestController restController,
+      ClusterSettings clusterSettings,
+      IndexScopedSettings indexScopedSettings,
+      SettingsFilter settingsFilter,
+      IndexNameExpressionResolver indexNameExpressionResolver,
+      Supplier<DiscoveryNodes> nodesInCluster,
+      Predicate<NodeFeature> clusterSupportsFeature) {
+    return List.of(new RestAccessStatsAction(), new RestEvaluateAction(settings, stats));
+  }
 
   @Override
   public ScriptEngine getScriptEngine(Settings settings, Collection<ScriptContext<?>> contexts) {
-    return new ABACAccessEngine();
+    return new ABACAccessEngine(stats, authorizationProfiles);
+  }
+
+  @Override
+  public List<QuerySpec<?>> getQueries() {
+    return List.of(
+        new QuerySpec<>(
+            AccumuloAccessQueryBuilder.NAME,
+            in ->
+                new AccumuloAccessQueryBuilder(in)
+                    .bitsetCache(bitsetCache)
+                    .labelSummaries(labelSummaries)
+                    .stats(stats)
+                    .authorizationProfiles(authorizationProfiles),
+            parser ->
+                AccumuloAccessQueryBuilder.fromXContent(parser)
+                    .bitsetCache(bitsetCache)
+                    .labelSummaries(labelSummaries)
+                    .stats(stats)
+                    .authorizationProfiles(authorizationProfiles)));
+  }
+
+  @Override
+  public List<FetchSubPhase> getFetchSubPhases(FetchPhaseConstructionContext context) {
+    return List.of(new RedactFetchSubPhase(stats, authorizationProfiles));
+  }
+
+  @Override
+  public List<SearchExtSpec<?>> getSearchExts() {
+    return List.of(
+        new SearchExtSpec<>(
+            RedactSearchExtBuilder.NAME,
+            RedactSearchExtBuilder::new,
+            RedactSearchExtBuilder::fromXContent));
+  }
+
+  @Override
+  public Map<String, Mapper.TypeParser> getMappers() {
+    return Map.of(AccumuloLabelFieldMapper.CONTENT_TYPE, AccumuloLabelFieldMapper.PARSER);
+  }
+
+  @Override
+  public Map<String, Processor.Factory> getProcessors(Processor.Parameters parameters) {
+    return Map.of(AccumuloLabelProcessor.TYPE, new AccumuloLabelProcessor.Factory());
   }
 
   // tag::abac_security
   private static class ABACAccessEngine implements ScriptEngine {
-    public ABACAccessEngine() {}
+    private final AccessStats stats;
+    private final AuthorizationProfiles authorizationProfiles;
+
+    public ABACAccessEngine(AccessStats stats, AuthorizationProfiles authorizationProfiles) {
+      this.stats = stats;
+      this.authorizationProfiles = authorizationProfiles;
+    }
 
     @Override
     public String getType() {
@@ -63,8 +198,15 @@ public class AccumuloAccessPlugin extends Plugin implements ScriptPlugin {
       }
 
       // we use the script "source" as the script identifier
-      if ("accumulo-access".equals(scriptSource)) {
-        FilterScript.Factory factory = new ContainsMultipleFactory();
+      if (SCRIPT_SOURCE.equals(scriptSource)) {
+        FilterScript.Factory factory =
+            new ContainsMultipleFactory(stats, authorizationProfiles, false);
+        return context.factoryClazz.cast(factory);
+      }
+
+      if (PROFILE_SCRIPT_SOURCE.equals(scriptSource)) {
+        FilterScript.Factory factory =
+            new ContainsMultipleFactory(stats, authorizationProfiles, true);
         return context.factoryClazz.cast(factory);
       }
 
@@ -82,84 +224,35 @@ public class AccumuloAccessPlugin extends Plugin implements ScriptPlugin {
     }
 
     private static class ContainsMultipleFactory implements FilterScript.Factory, ScriptFactory {
+      private final AccessStats stats;
+      private final AuthorizationProfiles authorizationProfiles;
+      private final boolean usesProfiles;
+
+      private ContainsMultipleFactory(
+          AccessStats stats, AuthorizationProfiles authorizationProfiles, boolean usesProfiles) {
+        this.stats = stats;
+        this.authorizationProfiles = authorizationProfiles;
+        this.usesProfiles = usesProfiles;
+      }
+
       @Override
       public boolean isResultDeterministic() {
-        return true;
+        // the same request returns other results once a profile it references changes, so the
+        // results of the profile source must not be served from the shard request cache
+        return !usesProfiles;
       }
 
       @Override
       public LeafFactory newFactory(Map<String, Object> params, SearchLookup lookup) {
-        return new ABACAccessLeafFactory(params, lookup);
-      }
-    }
-
-    private static class ABACAccessLeafFactory implements LeafFactory {
-      private final Map<String, Object> params;
-      private final SearchLookup lookup;
-      private final String labelField;
-      private final String authorizations;
-      private final LabelExtractor.Policy policy;
-      private AccessEvaluator evaluator;
-
-      private ABACAccessLeafFactory(Map<String, Object> params, SearchLookup lookup) {
-        params.forEach((k, v) -> logger.debug("param, key:{}, value:{}", k, v));
-
-        if (!params.containsKey(LABEL_FIELD_NAME)) {
+        if (!usesProfiles && params.containsKey(ABACAccessLeafFactory.AUTHORIZATION_PROFILE)) {
           throw new IllegalArgumentException(
-              String.format("Missing parameter [%s]", LABEL_FIELD_NAME));
+              String.format(
+                  "[%s] requires the script source [%s], as its results are not request cached",
+                  ABACAccessLeafFactory.AUTHORIZATION_PROFILE,
+                  PROFILE_SCRIPT_SOURCE));
         }
 
-        if (!params.containsKey(AUTHORIZATIONS_FIELD_NAME)) {
-          throw new IllegalArgumentException(
-              String.format("Missing parameter [%s]", AUTHORIZATIONS_FIELD_NAME));
-        }
-
-        if (params.containsKey(LABEL_EXTRACTION_POLICY)) {
-          policy = LabelExtractor.Policy.valueOf((String) params.get(LABEL_EXTRACTION_POLICY));
-        } else {
-          policy = LabelExtractor.Policy.NONE;
-        }
-
-        this.params = params;
-        this.lookup = lookup;
-        labelField = params.get(LABEL_FIELD_NAME).toString();
-        authorizations = params.get(AUTHORIZATIONS_FIELD_NAME).toString();
-      }
-
-      @Override
-      public FilterScript newInstance(DocReader docReader) {
-        return new FilterScript(params, lookup, docReader) {
-          @Override
-          public boolean execute() {
-            Optional<String> labelOptional =
-                extract(docReader.source().get().source(), labelField, policy);
-
-            if (labelOptional.isEmpty()) {
-              logger.info("Unable to determine label for label field [{}]", labelField);
-              return false;
-            }
-
-            String labelValue = labelOptional.get();
-
-            try {
-              evaluator = AccessEvaluator.of(Authorizations.of(Set.of(authorizations.split(","))));
-
-              boolean canAccess = evaluator.canAccess(labelValue);
-
-              logger.debug(
-                  "labelField:{}, value:{}, canAccess?:{}", labelField, labelValue, canAccess);
-
-              return canAccess;
-            } catch (Exception e) {
-              logger.info(
-                  "Failed to process label field [{}], value: [{}], error:{}",
-                  labelField,
-                  labelValue,
-                  e.getMessage());
-              return false;
-            }
-          }
-        };
+        return new ABACAccessLeafFactory(params, lookup, stats, authorizationProfiles);
       }
     }
     // end::abac_security
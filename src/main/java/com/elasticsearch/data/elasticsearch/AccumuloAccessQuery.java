@@ -0,0 +1,604 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessProfile;
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExplanation;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelVerdictCache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.apache.lucene.util.LongBitSet;
+
+/**
+ * A query matching documents whose label in an indexed keyword field is accessible with the given
+ * authorizations. Instead of evaluating the label of every document, each segment's terms
+ * dictionary is walked and every distinct label term is evaluated once. The matching documents are
+ * then collected from the postings of the accessible terms.
+ *
+ * <p>When the query is a filter of a conjunction whose other clauses match far fewer documents,
+ * the label is instead checked as the verification phase of a two-phase iterator, reading only
+ * the doc values of documents that matched every other clause.
+ *
+ * <p>When the node has a {@link LabelSummaryCache} and a segment has only a few distinct labels,
+ * they are evaluated before any per document work. The segment is skipped when none is accessible,
+ * and matches every labeled document when all are.
+ *
+ * <p>When the node has an {@link AccessBitsetCache}, the doc set of a segment is cached and reused
+ * by later queries with the same label field, policy and authorizations.
+ *
+ * <p>Every value of a multi-valued label field is evaluated on its own and a document matches when
+ * any of its values is accessible, which is how {@link LabelExtractor} 'OR's array values.
+ *
+ * <p>A {@link #profiled() profiled} query records an {@link AccessProfile} of its segments, which
+ * is part of its description in the Profile API, and explains why a document does or does not
+ * match by the tokens of each of its labels.
+ */
+public class AccumuloAccessQuery extends Query {
+  private final String labelField;
+  private final List<String> authorizations;
+  private final LabelExtractor.Policy policy;
+  private final int verdictCacheSize;
+  private final AccessBitsetCache bitsetCache;
+  private final LabelSummaryCache labelSummaries;
+  private final AccessStats stats;
+  // parsed authorizations shared with other queries, not part of equality
+  private final LabelEvaluator evaluator;
+  private final AccessProfile profile;
+
+  public AccumuloAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      int verdictCacheSize,
+      AccessBitsetCache bitsetCache,
+      AccessStats stats) {
+    this(labelField, authorizations, policy, verdictCacheSize, bitsetCache, null, stats, null);
+  }
+
+  /**
+   * Creates a query using the node's label summaries. Its segments copy the given, already parsed
+   * evaluator of the authorizations, e.g. the one of an {@link AuthorizationProfiles.Profile}.
+   */
+  AccumuloAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      int verdictCacheSize,
+      AccessBitsetCache bitsetCache,
+      LabelSummaryCache labelSummaries,
+      AccessStats stats,
+      LabelEvaluator evaluator) {
+    this(
+        labelField,
+        authorizations,
+        policy,
+        verdictCacheSize,
+        bitsetCache,
+        labelSummaries,
+        stats,
+        evaluator,
+        null);
+  }
+
+  private AccumuloAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      int verdictCacheSize,
+      AccessBitsetCache bitsetCache,
+      LabelSummaryCache labelSummaries,
+      AccessStats stats,
+      LabelEvaluator evaluator,
+      AccessProfile profile) {
+    this.labelField = Objects.requireNonNull(labelField);
+    // normalize the authorizations so that equal authorization sets make equal queries
+    this.authorizations = authorizations.stream().distinct().sorted().toList();
+    this.policy = Objects.requireNonNull(policy);
+    this.verdictCacheSize = verdictCacheSize;
+    this.bitsetCache = bitsetCache;
+    this.labelSummaries = labelSummaries;
+    this.stats = stats == null ? new AccessStats() : stats;
+    this.evaluator = evaluator;
+    this.profile = profile;
+  }
+
+  /**
+   * Returns a copy of this query recording an {@link AccessProfile}. The copy bypasses the bitset
+   * cache, so that the labels of every segment are evaluated.
+   */
+  AccumuloAccessQuery profiled() {
+    return new AccumuloAccessQuery(
+        labelField,
+        authorizations,
+        policy,
+        verdictCacheSize,
+        null,
+        labelSummaries,
+        stats,
+        evaluator,
+        new AccessProfile());
+  }
+
+  public String getLabelField() {
+    return labelField;
+  }
+
+  public List<String> getAuthorizations() {
+    return authorizations;
+  }
+
+  public LabelExtractor.Policy getPolicy() {
+    return policy;
+  }
+
+  /** Returns the profile of the segments searched so far, or null if the query is not profiled. */
+  public AccessProfile getProfile() {
+    return profile;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+    // the authorizations are parsed once, segments that may be searched concurrently get their
+    // own verdict caches, backed by one the segments share
+    LabelVerdictCache sharedVerdicts = LabelVerdictCache.concurrent(verdictCacheSize);
+    LabelEvaluator evaluator =
+        this.evaluator != null
+            ? this.evaluator.withEmptyCache(verdictCacheSize)
+            : new LabelEvaluator(
+                authorizations, LabelEvaluator.Type.ACCUMULO, verdictCacheSize, stats);
+
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        ScorerSupplier scorerSupplier = scorerSupplier(context);
+        return scorerSupplier == null ? null : scorerSupplier.get(Long.MAX_VALUE);
+      }
+
+      @Override
+      public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+        Terms terms = context.reader().terms(labelField);
+
+        if (terms == null) {
+          return null;
+        }
+
+        // a segment whose few labels are all accessible, or all denied, needs no per document work
+        long start = System.nanoTime();
+        SegmentVerdict verdict =
+            summaryVerdict(context, evaluator.withSharedCache(sharedVerdicts));
+
+        if (verdict == SegmentVerdict.NONE) {
+          stats.recordSegment("label_summary", System.nanoTime() - start);
+          return null;
+        }
+
+        if (verdict == SegmentVerdict.ALL) {
+          ScorerSupplier labeledDocs = labeledDocs(context, terms, this, score(), scoreMode);
+
+          if (labeledDocs != null) {
+            stats.recordSegment("label_summary", System.nanoTime() - start);
+            return labeledDocs;
+          }
+        }
+
+        DocIdSet cached = null;
+
+        if (bitsetCache != null) {
+          cached = bitsetCache.get(context, labelField, policy, authorizations);
+
+          if (cached == DocIdSet.EMPTY) {
+            return null;
+          }
+        }
+
+        Weight weight = this;
+        DocIdSet cachedDocs = cached;
+        long cost = terms.getDocCount();
+
+        return new ScorerSupplier() {
+          @Override
+          public Scorer get(long leadCost) throws IOException {
+            LabelEvaluator leafEvaluator = evaluator.withSharedCache(sharedVerdicts);
+
+            if (cachedDocs != null) {
+              return new ConstantScoreScorer(weight, score(), scoreMode, cachedDocs.iterator());
+            }
+
+            // like IndexOrDocValuesQuery, when other clauses lead the iteration and match far fewer
+            // docs than the label postings hold, only verify their docs through doc values
+            if (leadCost < (terms.getSumDocFreq() >>> 3) && hasSortedSetDocValues(context)) {
+              SortedSetDocValues values = context.reader().getSortedSetDocValues(labelField);
+              AccessProfile.Segment segment = segmentProfile(context, "doc_values", leafEvaluator);
+              stats.recordSegment("doc_values");
+              return new ConstantScoreScorer(
+                  weight,
+                  score(),
+                  scoreMode,
+                  new AccessTwoPhaseIterator(values, policy, leafEvaluator, segment));
+            }
+
+            DocIdSet docIdSet;
+
+            if (bitsetCache == null) {
+              docIdSet = accessibleDocs(context, leafEvaluator);
+            } else {
+              docIdSet =
+                  bitsetCache.getOrCompute(
+                      context,
+                      labelField,
+                      policy,
+                      authorizations,
+                      () -> accessibleDocs(context, leafEvaluator));
+            }
+
+            DocIdSetIterator iterator = docIdSet.iterator();
+            return new ConstantScoreScorer(
+                weight,
+                score(),
+                scoreMode,
+                iterator == null ? DocIdSetIterator.empty() : iterator);
+          }
+
+          @Override
+          public long cost() {
+            return cost;
+          }
+        };
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext context) {
+        // cached segments would not be profiled
+        return profile == null;
+      }
+
+      @Override
+      public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+        List<String> values = labelValues(context, doc);
+
+        if (values.isEmpty()) {
+          return Explanation.noMatch(
+              String.format("%s: document has no label in [%s]", getQuery(), labelField));
+        }
+
+        List<Explanation> details = new ArrayList<>(values.size());
+        boolean accessible = false;
+
+        for (String value : values) {
+          String label = LabelExtractor.sanitizeLabel(value, policy);
+          LabelExplanation explanation = LabelExplanation.explain(label, authorizations);
+          accessible |= explanation.isAccessible();
+          details.add(
+              explanation(
+                  explanation,
+                  String.format("value [%s] extracted as %s", value, explanation.description()),
+                  0));
+        }
+
+        String description = String.format("%s: any label value is accessible", getQuery());
+        return accessible
+            ? Explanation.match(score(), description, details)
+            : Explanation.noMatch(description, details);
+      }
+    };
+  }
+
+  /**
+   * Converts the explanation of a label into a Lucene explanation with the given description,
+   * matching with the given value when the label is accessible.
+   */
+  static Explanation explanation(LabelExplanation explanation, String description, float value) {
+    List<Explanation> details = new ArrayList<>(explanation.details().size());
+
+    for (LabelExplanation detail : explanation.details()) {
+      details.add(explanation(detail, detail.description(), 0));
+    }
+
+    return explanation.isAccessible()
+        ? Explanation.match(value, description, details)
+        : Explanation.noMatch(description, details);
+  }
+
+  /** Returns the values of the label field of the document. */
+  private List<String> labelValues(LeafReaderContext context, int doc) throws IOException {
+    List<String> values = new ArrayList<>();
+
+    if (hasSortedSetDocValues(context)) {
+      SortedSetDocValues docValues = context.reader().getSortedSetDocValues(labelField);
+
+      if (docValues.advanceExact(doc)) {
+        for (int i = 0; i < docValues.docValueCount(); i++) {
+          values.add(docValues.lookupOrd(docValues.nextOrd()).utf8ToString());
+        }
+      }
+
+      return values;
+    }
+
+    Terms terms = context.reader().terms(labelField);
+
+    if (terms == null) {
+      return values;
+    }
+
+    // without doc values, find the terms whose postings hold the document
+    TermsEnum termsEnum = terms.iterator();
+    PostingsEnum postings = null;
+
+    for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+      postings = termsEnum.postings(postings, PostingsEnum.NONE);
+
+      if (postings.advance(doc) == doc) {
+        values.add(term.utf8ToString());
+      }
+    }
+
+    return values;
+  }
+
+  private AccessProfile.Segment segmentProfile(
+      LeafReaderContext context, String strategy, LabelEvaluator evaluator) {
+    if (profile == null) {
+      return AccessProfile.Segment.DISABLED;
+    }
+
+    AccessProfile.Segment segment = profile.segment(context.ord, strategy);
+    segment.verdictCache(evaluator.verdictCache());
+    return segment;
+  }
+
+  private enum SegmentVerdict {
+    ALL,
+    NONE,
+    MIXED
+  }
+
+  /** Evaluates the summary of the segment's labels, if the segment has few enough of them. */
+  private SegmentVerdict summaryVerdict(LeafReaderContext context, LabelEvaluator leafEvaluator)
+      throws IOException {
+    if (labelSummaries == null) {
+      return SegmentVerdict.MIXED;
+    }
+
+    List<String> labels = labelSummaries.labels(context, labelField);
+
+    if (labels == null) {
+      return SegmentVerdict.MIXED;
+    }
+
+    AccessProfile.Segment segment = segmentProfile(context, "label_summary", leafEvaluator);
+    int accessible = 0;
+
+    for (String value : labels) {
+      long time = segment.start();
+      segment.distinctLabel();
+      String label = LabelExtractor.sanitizeLabel(value, policy);
+      time = segment.extracted(time);
+
+      if (leafEvaluator.canAccess(label)) {
+        accessible++;
+      }
+
+      segment.evaluated(time);
+    }
+
+    if (accessible == 0) {
+      return SegmentVerdict.NONE;
+    }
+
+    return accessible == labels.size() ? SegmentVerdict.ALL : SegmentVerdict.MIXED;
+  }
+
+  /**
+   * Returns a scorer supplier of every document of the segment that has a label, or null if they
+   * cannot be iterated without reading the postings.
+   */
+  private ScorerSupplier labeledDocs(
+      LeafReaderContext context, Terms terms, Weight weight, float score, ScoreMode scoreMode)
+      throws IOException {
+    int maxDoc = context.reader().maxDoc();
+    DocIdSetIterator iterator;
+
+    if (terms.getDocCount() == maxDoc) {
+      iterator = DocIdSetIterator.all(maxDoc);
+    } else if (hasSortedSetDocValues(context)) {
+      iterator = context.reader().getSortedSetDocValues(labelField);
+    } else {
+      return null;
+    }
+
+    return new ScorerSupplier() {
+      @Override
+      public Scorer get(long leadCost) {
+        return new ConstantScoreScorer(weight, score, scoreMode, iterator);
+      }
+
+      @Override
+      public long cost() {
+        return iterator.cost();
+      }
+    };
+  }
+
+  private boolean hasSortedSetDocValues(LeafReaderContext context) {
+    FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(labelField);
+    return fieldInfo != null && fieldInfo.getDocValuesType() == DocValuesType.SORTED_SET;
+  }
+
+  private DocIdSet accessibleDocs(LeafReaderContext context, LabelEvaluator evaluator)
+      throws IOException {
+    long start = System.nanoTime();
+
+    try {
+      return collectAccessibleDocs(context, evaluator);
+    } finally {
+      stats.recordSegment("terms", System.nanoTime() - start);
+    }
+  }
+
+  /** Collects the documents of the segment that have at least one accessible label term. */
+  private DocIdSet collectAccessibleDocs(LeafReaderContext context, LabelEvaluator evaluator)
+      throws IOException {
+    Terms terms = context.reader().terms(labelField);
+
+    if (terms == null) {
+      return DocIdSet.EMPTY;
+    }
+
+    DocIdSetBuilder builder = new DocIdSetBuilder(context.reader().maxDoc(), terms);
+    TermsEnum termsEnum = terms.iterator();
+    PostingsEnum postings = null;
+    boolean matched = false;
+    AccessProfile.Segment segment = segmentProfile(context, "terms", evaluator);
+    // reading the terms and the postings of the accessible ones is the loading time
+    long time = segment.start();
+
+    for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+      time = segment.loaded(time);
+      segment.distinctLabel();
+      String label = LabelExtractor.sanitizeLabel(term.utf8ToString(), policy);
+      time = segment.extracted(time);
+      boolean canAccess = evaluator.canAccess(label);
+      time = segment.evaluated(time);
+
+      if (canAccess) {
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        builder.add(postings);
+        matched = true;
+      }
+    }
+
+    segment.loaded(time);
+
+    return matched ? builder.build() : DocIdSet.EMPTY;
+  }
+
+  /**
+   * Verifies the docs of the other clauses of a conjunction by evaluating their label ordinals.
+   * Each ordinal is evaluated at most once per segment.
+   */
+  static class AccessTwoPhaseIterator extends TwoPhaseIterator {
+    // the same cost ScriptQuery reports, so the check runs after every cheaper clause has matched
+    private static final float MATCH_COST = 1000f;
+
+    private final SortedSetDocValues values;
+    private final LabelExtractor.Policy policy;
+    private final LabelEvaluator evaluator;
+    private final LongBitSet evaluated;
+    private final LongBitSet accessible;
+    private final AccessProfile.Segment segment;
+
+    AccessTwoPhaseIterator(
+        SortedSetDocValues values,
+        LabelExtractor.Policy policy,
+        LabelEvaluator evaluator,
+        AccessProfile.Segment segment) {
+      super(values);
+      this.values = values;
+      this.policy = policy;
+      this.evaluator = evaluator;
+      this.evaluated = new LongBitSet(values.getValueCount());
+      this.accessible = new LongBitSet(values.getValueCount());
+      this.segment = segment;
+    }
+
+    @Override
+    public boolean matches() throws IOException {
+      for (int i = 0; i < values.docValueCount(); i++) {
+        long time = segment.start();
+        long ord = values.nextOrd();
+
+        if (!evaluated.getAndSet(ord)) {
+          BytesRef term = values.lookupOrd(ord);
+          time = segment.loaded(time);
+          segment.distinctLabel();
+          String label = LabelExtractor.sanitizeLabel(term.utf8ToString(), policy);
+          time = segment.extracted(time);
+
+          if (evaluator.canAccess(label)) {
+            accessible.set(ord);
+          }
+
+          segment.evaluated(time);
+        } else {
+          segment.loaded(time);
+        }
+
+        if (accessible.get(ord)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public float matchCost() {
+      return MATCH_COST;
+    }
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    if (visitor.acceptField(labelField)) {
+      visitor.visitLeaf(this);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    return AccumuloAccessQueryBuilder.NAME
+        + "("
+        + labelField
+        + ", authorizations="
+        + authorizations
+        + ", policy="
+        + policy
+        + ")";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!sameClassAs(other)) {
+      return false;
+    }
+
+    AccumuloAccessQuery that = (AccumuloAccessQuery) other;
+    return labelField.equals(that.labelField)
+        && authorizations.equals(that.authorizations)
+        && policy == that.policy
+        && verdictCacheSize == that.verdictCacheSize
+        && (profile == null) == (that.profile == null);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        classHash(), labelField, authorizations, policy, verdictCacheSize, profile == null);
+  }
+}
@@ -0,0 +1,492 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelVerdictCache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+
+/**
+ * Builds an {@link AccumuloAccessQuery}, the native form of the {@code accumulo-access} filter
+ * script.
+ *
+ * <pre>
+ * {
+ *   "accumulo_access": {
+ *     "label_field": "sanction_programs",
+ *     "authorizations": "IFSR,NPWMD",
+ *     "label_extraction_policy": "SPLIT_OR"
+ *   }
+ * }
+ * </pre>
+ *
+ * Instead of {@code authorizations}, the query can reference an {@link AuthorizationProfiles
+ * authorization_profile} registered in the cluster settings.
+ *
+ * <p>With {@code disjunction_field}, the keyword field the {@link AccumuloLabelProcessor} writes
+ * the tokens of plain 'OR' labels into, documents with such labels are matched by a terms query on
+ * the authorizations. Only the documents without that field have their label evaluated.
+ *
+ * <p>With {@code "block_evaluation": true}, the labels of a keyword field with doc values are
+ * evaluated by a {@link BlockAccessQuery}, a block of documents at a time.
+ *
+ * <p>With {@code "profile": true}, the query records where the time of every segment goes, which
+ * the Profile API shows in the description of the query. It is meant for tuning, as it bypasses
+ * the caches and times every label.
+ */
+public class AccumuloAccessQueryBuilder extends AbstractQueryBuilder<AccumuloAccessQueryBuilder> {
+  public static final String NAME = "accumulo_access";
+
+  private static final ParseField LABEL_FIELD = new ParseField("label_field");
+  private static final ParseField AUTHORIZATIONS = new ParseField("authorizations");
+  private static final ParseField AUTHORIZATION_PROFILE = new ParseField("authorization_profile");
+  private static final ParseField LABEL_EXTRACTION_POLICY =
+      new ParseField("label_extraction_policy");
+  private static final ParseField VERDICT_CACHE_SIZE = new ParseField("verdict_cache_size");
+  private static final ParseField DISJUNCTION_FIELD = new ParseField("disjunction_field");
+  private static final ParseField BLOCK_EVALUATION = new ParseField("block_evaluation");
+  private static final ParseField PROFILE = new ParseField("profile");
+
+  private final String labelField;
+  private final List<String> authorizations;
+  private final String authorizationProfile;
+  private LabelExtractor.Policy policy = LabelExtractor.Policy.NONE;
+  private int verdictCacheSize = LabelVerdictCache.DEFAULT_SIZE;
+  private String disjunctionField;
+  private boolean blockEvaluation;
+  private boolean profile;
+  // node local, neither serialized nor part of equality
+  private AccessBitsetCache bitsetCache;
+  private LabelSummaryCache labelSummaries;
+  private AccessStats stats;
+  private AuthorizationProfiles authorizationProfiles;
+
+  public AccumuloAccessQueryBuilder(String labelField, List<String> authorizations) {
+    this(labelField, authorizations, null);
+  }
+
+  /** Creates a query using the authorizations of a registered profile. */
+  public AccumuloAccessQueryBuilder(String labelField, String authorizationProfile) {
+    this(labelField, null, authorizationProfile);
+  }
+
+  private AccumuloAccessQueryBuilder(
+      String labelField, List<String> authorizations, String authorizationProfile) {
+    if (labelField == null || labelField.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format("[%s] requires [%s]", NAME, LABEL_FIELD.getPreferredName()));
+    }
+
+    if ((authorizations == null) == (authorizationProfile == null)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires either [%s] or [%s]",
+              NAME,
+              AUTHORIZATIONS.getPreferredName(),
+              AUTHORIZATION_PROFILE.getPreferredName()));
+    }
+
+    this.labelField = labelField;
+    this.authorizations = authorizations == null ? List.of() : List.copyOf(authorizations);
+    this.authorizationProfile = authorizationProfile;
+  }
+
+  public AccumuloAccessQueryBuilder(StreamInput in) throws IOException {
+    super(in);
+    labelField = in.readString();
+    authorizations = in.readStringCollectionAsList();
+    authorizationProfile = in.readOptionalString();
+    policy = in.readEnum(LabelExtractor.Policy.class);
+    verdictCacheSize = in.readVInt();
+    disjunctionField = in.readOptionalString();
+    blockEvaluation = in.readBoolean();
+    profile = in.readBoolean();
+  }
+
+  @Override
+  protected void doWriteTo(StreamOutput out) throws IOException {
+    out.writeString(labelField);
+    out.writeStringCollection(authorizations);
+    out.writeOptionalString(authorizationProfile);
+    out.writeEnum(policy);
+    out.writeVInt(verdictCacheSize);
+    out.writeOptionalString(disjunctionField);
+    out.writeBoolean(blockEvaluation);
+    out.writeBoolean(profile);
+  }
+
+  public String labelField() {
+    return labelField;
+  }
+
+  public List<String> authorizations() {
+    return authorizations;
+  }
+
+  public String authorizationProfile() {
+    return authorizationProfile;
+  }
+
+  public AccumuloAccessQueryBuilder labelExtractionPolicy(LabelExtractor.Policy policy) {
+    this.policy = Objects.requireNonNull(policy);
+    return this;
+  }
+
+  public LabelExtractor.Policy labelExtractionPolicy() {
+    return policy;
+  }
+
+  public AccumuloAccessQueryBuilder verdictCacheSize(int verdictCacheSize) {
+    if (verdictCacheSize < 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] must be non-negative but was [%d]",
+              VERDICT_CACHE_SIZE.getPreferredName(),
+              verdictCacheSize));
+    }
+
+    this.verdictCacheSize = verdictCacheSize;
+    return this;
+  }
+
+  public int verdictCacheSize() {
+    return verdictCacheSize;
+  }
+
+  public AccumuloAccessQueryBuilder disjunctionField(String disjunctionField) {
+    this.disjunctionField = disjunctionField;
+    return this;
+  }
+
+  public String disjunctionField() {
+    return disjunctionField;
+  }
+
+  /** Sets whether the labels are evaluated a block of documents at a time. */
+  public AccumuloAccessQueryBuilder blockEvaluation(boolean blockEvaluation) {
+    this.blockEvaluation = blockEvaluation;
+    return this;
+  }
+
+  public boolean blockEvaluation() {
+    return blockEvaluation;
+  }
+
+  /** Sets whether the query records an {@link com.elasticsearch.data.AccessProfile}. */
+  public AccumuloAccessQueryBuilder profile(boolean profile) {
+    this.profile = profile;
+    return this;
+  }
+
+  public boolean profile() {
+    return profile;
+  }
+
+  AccumuloAccessQueryBuilder bitsetCache(AccessBitsetCache bitsetCache) {
+    this.bitsetCache = bitsetCache;
+    return this;
+  }
+
+  AccumuloAccessQueryBuilder labelSummaries(LabelSummaryCache labelSummaries) {
+    this.labelSummaries = labelSummaries;
+    return this;
+  }
+
+  AccumuloAccessQueryBuilder stats(AccessStats stats) {
+    this.stats = stats;
+    return this;
+  }
+
+  AccumuloAccessQueryBuilder authorizationProfiles(AuthorizationProfiles authorizationProfiles) {
+    this.authorizationProfiles = authorizationProfiles;
+    return this;
+  }
+
+  public static AccumuloAccessQueryBuilder fromXContent(XContentParser parser) throws IOException {
+    String labelField = null;
+    List<String> authorizations = null;
+    String authorizationProfile = null;
+    LabelExtractor.Policy policy = LabelExtractor.Policy.NONE;
+    int verdictCacheSize = LabelVerdictCache.DEFAULT_SIZE;
+    String disjunctionField = null;
+    boolean blockEvaluation = false;
+    boolean profile = false;
+    String queryName = null;
+    float boost = AbstractQueryBuilder.DEFAULT_BOOST;
+
+    String currentFieldName = null;
+    XContentParser.Token token;
+
+    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+      if (token == XContentParser.Token.FIELD_NAME) {
+        currentFieldName = parser.currentName();
+      } else if (token == XContentParser.Token.START_ARRAY
+          && AUTHORIZATIONS.match(currentFieldName, parser.getDeprecationHandler())) {
+        authorizations = new ArrayList<>();
+
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+          authorizations.add(parser.text());
+        }
+      } else if (token.isValue()) {
+        if (LABEL_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+          labelField = parser.text();
+        } else if (AUTHORIZATIONS.match(currentFieldName, parser.getDeprecationHandler())) {
+          // same comma separated form as the script param
+          authorizations = LabelEvaluator.parseAuthorizations(parser.text());
+        } else if (AUTHORIZATION_PROFILE.match(currentFieldName, parser.getDeprecationHandler())) {
+          authorizationProfile = parser.text();
+        } else if (LABEL_EXTRACTION_POLICY.match(
+            currentFieldName, parser.getDeprecationHandler())) {
+          policy = LabelExtractor.Policy.valueOf(parser.text());
+        } else if (VERDICT_CACHE_SIZE.match(currentFieldName, parser.getDeprecationHandler())) {
+          verdictCacheSize = parser.intValue();
+        } else if (DISJUNCTION_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+          disjunctionField = parser.text();
+        } else if (BLOCK_EVALUATION.match(currentFieldName, parser.getDeprecationHandler())) {
+          blockEvaluation = parser.booleanValue();
+        } else if (PROFILE.match(currentFieldName, parser.getDeprecationHandler())) {
+          profile = parser.booleanValue();
+        } else if (AbstractQueryBuilder.NAME_FIELD.match(
+            currentFieldName, parser.getDeprecationHandler())) {
+          queryName = parser.text();
+        } else if (AbstractQueryBuilder.BOOST_FIELD.match(
+            currentFieldName, parser.getDeprecationHandler())) {
+          boost = parser.floatValue();
+        } else {
+          throw new ParsingException(
+              parser.getTokenLocation(),
+              "[" + NAME + "] query does not support [" + currentFieldName + "]");
+        }
+      } else {
+        throw new ParsingException(
+            parser.getTokenLocation(),
+            "[" + NAME + "] unknown token [" + token + "] after [" + currentFieldName + "]");
+      }
+    }
+
+    return new AccumuloAccessQueryBuilder(labelField, authorizations, authorizationProfile)
+        .labelExtractionPolicy(policy)
+        .verdictCacheSize(verdictCacheSize)
+        .disjunctionField(disjunctionField)
+        .blockEvaluation(blockEvaluation)
+        .profile(profile)
+        .queryName(queryName)
+        .boost(boost);
+  }
+
+  @Override
+  protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.startObject(NAME);
+    builder.field(LABEL_FIELD.getPreferredName(), labelField);
+
+    if (authorizationProfile != null) {
+      builder.field(AUTHORIZATION_PROFILE.getPreferredName(), authorizationProfile);
+    } else {
+      builder.stringListField(AUTHORIZATIONS.getPreferredName(), authorizations);
+    }
+
+    builder.field(LABEL_EXTRACTION_POLICY.getPreferredName(), policy.name());
+    builder.field(VERDICT_CACHE_SIZE.getPreferredName(), verdictCacheSize);
+
+    if (disjunctionField != null) {
+      builder.field(DISJUNCTION_FIELD.getPreferredName(), disjunctionField);
+    }
+
+    if (blockEvaluation) {
+      builder.field(BLOCK_EVALUATION.getPreferredName(), true);
+    }
+
+    if (profile) {
+      builder.field(PROFILE.getPreferredName(), true);
+    }
+
+    boostAndQueryNameToXContent(builder);
+    builder.endObject();
+  }
+
+  @Override
+  protected Query doToQuery(SearchExecutionContext context) {
+    MappedFieldType fieldType = context.getFieldType(labelField);
+
+    if (fieldType == null) {
+      return new MatchNoDocsQuery("label field [" + labelField + "] is not mapped");
+    }
+
+    AuthorizationProfiles.Profile resolvedProfile = resolveProfile(context);
+    List<String> authorizations =
+        resolvedProfile == null ? this.authorizations : resolvedProfile.authorizations();
+
+    Query accessQuery = accessQuery(fieldType, authorizations, resolvedProfile);
+    return disjunctionField == null
+        ? accessQuery
+        : withDisjunctions(context, accessQuery, authorizations);
+  }
+
+  private Query accessQuery(
+      MappedFieldType fieldType,
+      List<String> authorizations,
+      AuthorizationProfiles.Profile resolvedProfile) {
+    // labels of accumulo_label fields are already sanitized and parsed at index time
+    if (fieldType instanceof AccumuloLabelFieldMapper.AccumuloLabelFieldType) {
+      BinaryLabelAccessQuery query =
+          new BinaryLabelAccessQuery(fieldType.name(), authorizations, stats);
+      return profile ? query.profiled() : query;
+    }
+
+    if (!(fieldType instanceof KeywordFieldMapper.KeywordFieldType) || !fieldType.isIndexed()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires label field [%s] to be an indexed keyword or [%s] field but is [%s]",
+              NAME,
+              labelField,
+              AccumuloLabelFieldMapper.CONTENT_TYPE,
+              fieldType.typeName()));
+    }
+
+    LabelEvaluator evaluator =
+        resolvedProfile == null ? null : resolvedProfile.evaluator(LabelEvaluator.Type.ACCUMULO, 0);
+
+    if (blockEvaluation) {
+      if (!fieldType.hasDocValues()) {
+        throw new IllegalArgumentException(
+            String.format(
+                "[%s] requires label field [%s] to have doc values for [%s]",
+                NAME,
+                labelField,
+                BLOCK_EVALUATION.getPreferredName()));
+      }
+
+      BlockAccessQuery query =
+          new BlockAccessQuery(fieldType.name(), authorizations, policy, stats, evaluator);
+      return profile ? query.profiled() : query;
+    }
+
+    AccumuloAccessQuery query =
+        new AccumuloAccessQuery(
+            fieldType.name(),
+            authorizations,
+            policy,
+            verdictCacheSize,
+            bitsetCache,
+            labelSummaries,
+            stats,
+            evaluator);
+    return profile ? query.profiled() : query;
+  }
+
+  /**
+   * Matches the documents whose label is a plain 'OR' of tokens with a terms query on their
+   * tokens, and only evaluates the labels of the documents without disjunction tokens.
+   */
+  private Query withDisjunctions(
+      SearchExecutionContext context, Query accessQuery, List<String> authorizations) {
+    MappedFieldType disjunctionType = context.getFieldType(disjunctionField);
+
+    // no document of the index has disjunction tokens
+    if (disjunctionType == null) {
+      return accessQuery;
+    }
+
+    if (!(disjunctionType instanceof KeywordFieldMapper.KeywordFieldType keywordType)
+        || !disjunctionType.isIndexed()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires disjunction field [%s] to be an indexed keyword field but is [%s]",
+              NAME,
+              disjunctionField,
+              disjunctionType.typeName()));
+    }
+
+    // a normalizer would also normalize the authorizations, so that e.g. [blue] matched [BLUE]
+    if (keywordType.hasNormalizer()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires disjunction field [%s] to have no normalizer",
+              NAME,
+              disjunctionField));
+    }
+
+    Query others =
+        new BooleanQuery.Builder()
+            .add(accessQuery, BooleanClause.Occur.FILTER)
+            .add(disjunctionType.existsQuery(context), BooleanClause.Occur.MUST_NOT)
+            .build();
+
+    return new ConstantScoreQuery(
+        new BooleanQuery.Builder()
+            .add(disjunctionType.termsQuery(authorizations, context), BooleanClause.Occur.SHOULD)
+            .add(others, BooleanClause.Occur.SHOULD)
+            .build());
+  }
+
+  private AuthorizationProfiles.Profile resolveProfile(SearchExecutionContext context) {
+    if (authorizationProfile == null) {
+      return null;
+    }
+
+    if (authorizationProfiles == null) {
+      throw new IllegalArgumentException(
+          String.format("[%s] authorization profiles are not available on this node", NAME));
+    }
+
+    // the request is the same before and after the profile changes, so its results must not be
+    // served from the shard request cache
+    context.disableCache();
+    return authorizationProfiles.get(authorizationProfile);
+  }
+
+  @Override
+  protected boolean doEquals(AccumuloAccessQueryBuilder other) {
+    return labelField.equals(other.labelField)
+        && authorizations.equals(other.authorizations)
+        && Objects.equals(authorizationProfile, other.authorizationProfile)
+        && policy == other.policy
+        && verdictCacheSize == other.verdictCacheSize
+        && Objects.equals(disjunctionField, other.disjunctionField)
+        && blockEvaluation == other.blockEvaluation
+        && profile == other.profile;
+  }
+
+  @Override
+  protected int doHashCode() {
+    return Objects.hash(
+        labelField,
+        authorizations,
+        authorizationProfile,
+        policy,
+        verdictCacheSize,
+        disjunctionField,
+        blockEvaluation,
+        profile);
+  }
+
+  @Override
+  public String getWriteableName() {
+    return NAME;
+  }
+
+  @Override
+  public TransportVersion getMinimalSupportedVersion() {
+    return TransportVersions.ZERO;
+  }
+}
@@ -0,0 +1,194 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessExpressionParser;
+import com.elasticsearch.data.BinaryAccessExpression;
+import com.elasticsearch.data.LabelExtractor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.accumulo.access.AccessExpression;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.mapper.CustomDocValuesField;
+import org.elasticsearch.index.mapper.DocumentParserContext;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperBuilderContext;
+import org.elasticsearch.index.mapper.SourceValueFetcher;
+import org.elasticsearch.index.mapper.TextSearchInfo;
+import org.elasticsearch.index.mapper.ValueFetcher;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.xcontent.XContentParser;
+
+/**
+ * A field holding an access expression. Every value is sanitized with the field's extraction
+ * policy, validated, and stored pre-parsed as a {@link BinaryAccessExpression} in binary doc
+ * values. The values of a multi-valued field are 'OR' together into a single expression. The
+ * field is neither indexed nor stored, it is only read by the {@code accumulo_access} query.
+ *
+ * <pre>
+ * "mappings": {
+ *   "properties": {
+ *     "accumulo_label": {
+ *       "type": "accumulo_label",
+ *       "label_extraction_policy": "RAW"
+ *     }
+ *   }
+ * }
+ * </pre>
+ */
+public class AccumuloLabelFieldMapper extends FieldMapper {
+  public static final String CONTENT_TYPE = "accumulo_label";
+
+  public static final TypeParser PARSER = new TypeParser((name, context) -> new Builder(name));
+
+  private static AccumuloLabelFieldMapper toType(FieldMapper mapper) {
+    return (AccumuloLabelFieldMapper) mapper;
+  }
+
+  public static class Builder extends FieldMapper.Builder {
+    private final Parameter<LabelExtractor.Policy> policy =
+        Parameter.enumParam(
+            "label_extraction_policy",
+            false,
+            mapper -> toType(mapper).policy,
+            LabelExtractor.Policy.RAW,
+            LabelExtractor.Policy.class);
+    private final Parameter<Map<String, String>> meta = Parameter.metaParam();
+
+    public Builder(String name) {
+      super(name);
+    }
+
+    @Override
+    protected Parameter<?>[] getParameters() {
+      return new Parameter<?>[] {policy, meta};
+    }
+
+    @Override
+    public AccumuloLabelFieldMapper build(MapperBuilderContext context) {
+      return new AccumuloLabelFieldMapper(
+          leafName(),
+          new AccumuloLabelFieldType(context.buildFullName(leafName()), meta.getValue()),
+          multiFieldsBuilder.build(this, context),
+          copyTo,
+          policy.getValue());
+    }
+  }
+
+  public static final class AccumuloLabelFieldType extends MappedFieldType {
+
+    public AccumuloLabelFieldType(String name, Map<String, String> meta) {
+      super(name, false, false, true, TextSearchInfo.NONE, meta);
+    }
+
+    @Override
+    public String typeName() {
+      return CONTENT_TYPE;
+    }
+
+    @Override
+    public ValueFetcher valueFetcher(SearchExecutionContext context, String format) {
+      return SourceValueFetcher.toString(name(), context, format);
+    }
+
+    @Override
+    public Query termQuery(Object value, SearchExecutionContext context) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] field [%s] is not searchable, use the [%s] query instead",
+              CONTENT_TYPE,
+              name(),
+              AccumuloAccessQueryBuilder.NAME));
+    }
+  }
+
+  private final LabelExtractor.Policy policy;
+
+  private AccumuloLabelFieldMapper(
+      String simpleName,
+      MappedFieldType fieldType,
+      MultiFields multiFields,
+      CopyTo copyTo,
+      LabelExtractor.Policy policy) {
+    super(simpleName, fieldType, multiFields, copyTo);
+    this.policy = policy;
+  }
+
+  @Override
+  public AccumuloLabelFieldType fieldType() {
+    return (AccumuloLabelFieldType) super.fieldType();
+  }
+
+  @Override
+  protected void parseCreateField(DocumentParserContext context) throws IOException {
+    XContentParser parser = context.parser();
+
+    if (parser.currentToken() == XContentParser.Token.VALUE_NULL) {
+      return;
+    }
+
+    String label = LabelExtractor.sanitizeLabel(parser.text(), policy);
+    AccessExpressionParser.Node expression;
+
+    try {
+      AccessExpression.of(label);
+      expression = AccessExpressionParser.parse(label);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Label [%s] of field [%s] is not a valid access expression: %s",
+              label,
+              fieldType().name(),
+              e.getMessage()),
+          e);
+    }
+
+    // the values of a multi-valued field share a single binary doc value
+    LabelDocValuesField field = (LabelDocValuesField) context.doc().getByKey(fieldType().name());
+
+    if (field == null) {
+      field = new LabelDocValuesField(fieldType().name());
+      context.doc().addWithKey(fieldType().name(), field);
+    }
+
+    field.add(expression);
+  }
+
+  @Override
+  public FieldMapper.Builder getMergeBuilder() {
+    return new Builder(leafName()).init(this);
+  }
+
+  @Override
+  protected String contentType() {
+    return CONTENT_TYPE;
+  }
+
+  private static final class LabelDocValuesField extends CustomDocValuesField {
+    private final List<byte[]> expressions = new ArrayList<>(1);
+    private BytesRef bytes;
+
+    LabelDocValuesField(String name) {
+      super(name);
+    }
+
+    void add(AccessExpressionParser.Node expression) {
+      // encoded while the document is parsed, so that any failure is reported as a parse failure
+      // rather than when the document is written to the index
+      expressions.add(BinaryAccessExpression.encode(expression));
+      bytes = null;
+    }
+
+    @Override
+    public BytesRef binaryValue() {
+      // the values are only combined once all of them are parsed
+      if (bytes == null) {
+        bytes = new BytesRef(BinaryAccessExpression.encodeAnyEncoded(expressions));
+      }
+
+      return bytes;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.elasticsearch.ingest.ConfigurationUtils.newConfigurationException;
+import static org.elasticsearch.ingest.ConfigurationUtils.readBooleanProperty;
+import static org.elasticsearch.ingest.ConfigurationUtils.readOptionalStringProperty;
+import static org.elasticsearch.ingest.ConfigurationUtils.readStringProperty;
+
+import com.elasticsearch.data.AccessExpressionParser;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelPath;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.accumulo.access.AccessExpression;
+import org.elasticsearch.ingest.AbstractProcessor;
+import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.Processor;
+
+/**
+ * An ingest processor that extracts the label of a document with {@link LabelExtractor} at index
+ * time, validates it as an access expression and stores it in a dedicated field. Searches can then
+ * read the precomputed label from that field with the {@code RAW} extraction policy instead of
+ * extracting it from {@code _source} on every query.
+ *
+ * <p>With {@code disjunction_field}, the tokens of labels that are a plain 'OR' of tokens are also
+ * written into that field, so that the {@code accumulo_access} query can match those documents
+ * with a terms query and only evaluate the remaining labels as expressions.
+ */
+public final class AccumuloLabelProcessor extends AbstractProcessor {
+  public static final String TYPE = "accumulo_label";
+
+  /** What to do with a document whose label is not a valid access expression. */
+  public enum OnInvalidLabel {
+    /** Fail the document, which triggers the pipeline's {@code on_failure} handlers. */
+    FAIL,
+    /** Index the document without the target field. */
+    SKIP
+  }
+
+  private final String labelField;
+  private final String targetField;
+  private final String disjunctionField;
+  private final LabelExtractor.Policy policy;
+  // ingest runs on many threads at once, extractors reuse their buffer and must not be shared
+  private final ThreadLocal<LabelPath.Extractor> extractors;
+  private final boolean ignoreMissing;
+  private final OnInvalidLabel onInvalidLabel;
+
+  AccumuloLabelProcessor(
+      String tag,
+      String description,
+      LabelPath labelPath,
+      String targetField,
+      String disjunctionField,
+      boolean ignoreMissing,
+      OnInvalidLabel onInvalidLabel) {
+    super(tag, description);
+    this.labelField = labelPath.labelField();
+    this.targetField = targetField;
+    this.disjunctionField = disjunctionField;
+    this.policy = labelPath.policy();
+    this.extractors = ThreadLocal.withInitial(labelPath::extractor);
+    this.ignoreMissing = ignoreMissing;
+    this.onInvalidLabel = onInvalidLabel;
+  }
+
+  @Override
+  public IngestDocument execute(IngestDocument ingestDocument) {
+    Optional<String> labelOptional =
+        extractors.get().extract(ingestDocument.getSourceAndMetadata());
+
+    if (labelOptional.isEmpty()) {
+      if (ignoreMissing) {
+        return withoutLabel(ingestDocument);
+      }
+
+      throw new IllegalArgumentException(
+          String.format("Unable to determine label for label field [%s]", labelField));
+    }
+
+    String label = labelOptional.get();
+
+    try {
+      AccessExpression.of(label);
+    } catch (IllegalArgumentException e) {
+      if (onInvalidLabel == OnInvalidLabel.SKIP) {
+        return withoutLabel(ingestDocument);
+      }
+
+      throw new IllegalArgumentException(
+          String.format(
+              "Label [%s] of label field [%s] is not a valid access expression: %s",
+              label,
+              labelField,
+              e.getMessage()),
+          e);
+    }
+
+    ingestDocument.setFieldValue(targetField, label);
+
+    if (disjunctionField != null) {
+      List<String> tokens = AccessExpressionParser.disjunctionTokens(label);
+
+      if (tokens != null) {
+        ingestDocument.setFieldValue(disjunctionField, tokens);
+      } else if (ingestDocument.hasField(disjunctionField)) {
+        // other labels are only matched by evaluating the expression
+        ingestDocument.removeField(disjunctionField);
+      }
+    }
+
+    return ingestDocument;
+  }
+
+  /**
+   * Removes the target and disjunction fields the client may have sent with the document, so that
+   * a document without a valid label never carries a label or tokens the search would trust.
+   */
+  private IngestDocument withoutLabel(IngestDocument ingestDocument) {
+    if (ingestDocument.hasField(targetField)) {
+      ingestDocument.removeField(targetField);
+    }
+
+    if (disjunctionField != null && ingestDocument.hasField(disjunctionField)) {
+      ingestDocument.removeField(disjunctionField);
+    }
+
+    return ingestDocument;
+  }
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  String getLabelField() {
+    return labelField;
+  }
+
+  String getTargetField() {
+    return targetField;
+  }
+
+  String getDisjunctionField() {
+    return disjunctionField;
+  }
+
+  LabelExtractor.Policy getPolicy() {
+    return policy;
+  }
+
+  public static final class Factory implements Processor.Factory {
+    @Override
+    public AccumuloLabelProcessor create(
+        Map<String, Processor.Factory> processorFactories,
+        String tag,
+        String description,
+        Map<String, Object> config) {
+      String labelField = readStringProperty(TYPE, tag, config, "label_field");
+      String targetField = readStringProperty(TYPE, tag, config, "target_field");
+      String disjunctionField = readOptionalStringProperty(TYPE, tag, config, "disjunction_field");
+      String policyName =
+          readOptionalStringProperty(TYPE, tag, config, "label_extraction_policy");
+      boolean ignoreMissing = readBooleanProperty(TYPE, tag, config, "ignore_missing", false);
+      String onInvalidLabelName = readStringProperty(TYPE, tag, config, "on_invalid_label", "fail");
+
+      LabelExtractor.Policy policy;
+      OnInvalidLabel onInvalidLabel;
+
+      try {
+        policy =
+            policyName == null
+                ? LabelExtractor.Policy.NONE
+                : LabelExtractor.Policy.valueOf(policyName);
+      } catch (IllegalArgumentException e) {
+        throw newConfigurationException(
+            TYPE, tag, "label_extraction_policy", "unknown policy [" + policyName + "]");
+      }
+
+      try {
+        onInvalidLabel = OnInvalidLabel.valueOf(onInvalidLabelName.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw newConfigurationException(
+            TYPE, tag, "on_invalid_label", "must be one of [fail, skip]");
+      }
+
+      return new AccumuloLabelProcessor(
+          tag,
+          description,
+          LabelPath.compile(labelField, policy),
+          targetField,
+          disjunctionField,
+          ignoreMissing,
+          onInvalidLabel);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Named authorization sets registered in the cluster settings, so that queries and scripts can
+ * reference a profile instead of sending its authorizations with every request.
+ *
+ * <pre>
+ * PUT _cluster/settings
+ * {
+ *   "persistent": {
+ *     "accumulo_access.authorization_profiles.analyst.authorizations": ["IFSR", "NPWMD"]
+ *   }
+ * }
+ * </pre>
+ *
+ * Every node keeps the profiles parsed in memory, and re-parses a profile only when its setting
+ * changes. A profile without authorizations is removed.
+ */
+public class AuthorizationProfiles {
+  private static final Logger logger = LogManager.getLogger(AuthorizationProfiles.class);
+
+  public static final Setting.AffixSetting<List<String>> AUTHORIZATIONS_SETTING =
+      Setting.affixKeySetting(
+          "accumulo_access.authorization_profiles.",
+          "authorizations",
+          key ->
+              Setting.listSetting(
+                  key, List.of(), Function.identity(), Property.NodeScope, Property.Dynamic));
+
+  /** The parsed authorizations of a profile, with one prototype evaluator per evaluator type. */
+  public static final class Profile {
+    private final String id;
+    private final List<String> authorizations;
+    private final Map<LabelEvaluator.Type, LabelEvaluator> evaluators =
+        new EnumMap<>(LabelEvaluator.Type.class);
+
+    private Profile(String id, List<String> authorizations, AccessStats stats) {
+      this.id = id;
+      this.authorizations = authorizations.stream().distinct().sorted().toList();
+
+      for (LabelEvaluator.Type type : LabelEvaluator.Type.values()) {
+        evaluators.put(type, new LabelEvaluator(this.authorizations, type, 0, stats));
+      }
+    }
+
+    public String id() {
+      return id;
+    }
+
+    /** Returns the distinct, sorted authorizations of the profile. */
+    public List<String> authorizations() {
+      return authorizations;
+    }
+
+    /** Returns a new evaluator for the authorizations of the profile, with an empty cache. */
+    public LabelEvaluator evaluator(LabelEvaluator.Type type, int verdictCacheSize) {
+      return evaluators.get(type).withEmptyCache(verdictCacheSize);
+    }
+  }
+
+  private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+  private final AccessStats stats;
+
+  public AuthorizationProfiles(AccessStats stats) {
+    this.stats = stats;
+  }
+
+  /** Loads the profiles of the node settings and follows the updates of the cluster settings. */
+  public void register(Settings settings, ClusterSettings clusterSettings) {
+    AUTHORIZATIONS_SETTING.getAsMap(settings).forEach(this::update);
+    clusterSettings.addAffixUpdateConsumer(AUTHORIZATIONS_SETTING, this::update, this::validate);
+  }
+
+  /** Replaces the authorizations of a profile, or removes the profile if they are empty. */
+  public void update(String id, List<String> authorizations) {
+    if (authorizations.isEmpty()) {
+      if (profiles.remove(id) != null) {
+        logger.info("removed authorization profile [{}]", id);
+      }
+
+      return;
+    }
+
+    profiles.put(id, new Profile(id, authorizations, stats));
+    logger.info(
+        "updated authorization profile [{}] with [{}] authorizations", id, authorizations.size());
+  }
+
+  private void validate(String id, List<String> authorizations) {
+    try {
+      new LabelEvaluator(authorizations, 0);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.format("Invalid authorizations of profile [%s]: %s", id, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Returns the profile with the given id.
+   *
+   * @throws IllegalArgumentException if there is no such profile
+   */
+  public Profile get(String id) {
+    Profile profile = profiles.get(id);
+
+    if (profile == null) {
+      throw new IllegalArgumentException(
+          String.format("Unknown authorization profile [%s]", id));
+    }
+
+    return profile;
+  }
+}
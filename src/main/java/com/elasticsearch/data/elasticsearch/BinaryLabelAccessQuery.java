@@ -0,0 +1,181 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessProfile;
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.BinaryAccessExpression;
+import com.elasticsearch.data.LabelExplanation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A query matching documents whose {@link AccumuloLabelFieldMapper accumulo_label} field is
+ * accessible with the given authorizations. The pre-parsed expression of every document is read
+ * from binary doc values and evaluated in place, without building or parsing a string.
+ *
+ * <p>Like {@link AccumuloAccessQuery}, the query can be {@link #profiled() profiled}, and explains
+ * the verdict of a document by the tokens of its decoded label.
+ */
+public class BinaryLabelAccessQuery extends Query {
+  // decoding a small expression costs about as much as a few doc values lookups
+  private static final float MATCH_COST = 10f;
+
+  private final String labelField;
+  private final List<String> authorizations;
+  private final AccessStats stats;
+  private final AccessProfile profile;
+
+  public BinaryLabelAccessQuery(String labelField, List<String> authorizations, AccessStats stats) {
+    this(labelField, authorizations, stats, null);
+  }
+
+  private BinaryLabelAccessQuery(
+      String labelField, List<String> authorizations, AccessStats stats, AccessProfile profile) {
+    this.labelField = Objects.requireNonNull(labelField);
+    this.authorizations = authorizations.stream().distinct().sorted().toList();
+    this.stats = stats == null ? new AccessStats() : stats;
+    this.profile = profile;
+  }
+
+  /** Returns a copy of this query recording an {@link AccessProfile}. */
+  BinaryLabelAccessQuery profiled() {
+    return new BinaryLabelAccessQuery(labelField, authorizations, stats, new AccessProfile());
+  }
+
+  public String getLabelField() {
+    return labelField;
+  }
+
+  public List<String> getAuthorizations() {
+    return authorizations;
+  }
+
+  /** Returns the profile of the segments searched so far, or null if the query is not profiled. */
+  public AccessProfile getProfile() {
+    return profile;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        if (context.reader().getFieldInfos().fieldInfo(labelField) == null) {
+          return null;
+        }
+
+        BinaryDocValues values = DocValues.getBinary(context.reader(), labelField);
+        // one evaluator per segment, as it keeps a read position
+        BinaryAccessExpression.Evaluator evaluator =
+            new BinaryAccessExpression.Evaluator(authorizations);
+        // labels are parsed at index time, so there is no extraction to profile
+        AccessProfile.Segment segment =
+            profile == null
+                ? AccessProfile.Segment.DISABLED
+                : profile.segment(context.ord, "binary_doc_values");
+
+        TwoPhaseIterator twoPhase =
+            new TwoPhaseIterator(values) {
+              @Override
+              public boolean matches() throws IOException {
+                long time = segment.start();
+                BytesRef bytes = values.binaryValue();
+                time = segment.loaded(time);
+                boolean canAccess = evaluator.canAccess(bytes.bytes, bytes.offset);
+                segment.evaluated(time);
+                stats.recordEvaluation(canAccess);
+                return canAccess;
+              }
+
+              @Override
+              public float matchCost() {
+                return MATCH_COST;
+              }
+            };
+
+        stats.recordSegment("binary_doc_values");
+        return new ConstantScoreScorer(this, score(), scoreMode, twoPhase);
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext context) {
+        return profile == null && DocValues.isCacheable(context, labelField);
+      }
+
+      @Override
+      public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+        if (context.reader().getFieldInfos().fieldInfo(labelField) == null) {
+          return Explanation.noMatch(
+              String.format("%s: no document of the segment has [%s]", getQuery(), labelField));
+        }
+
+        BinaryDocValues values = DocValues.getBinary(context.reader(), labelField);
+
+        if (!values.advanceExact(doc)) {
+          return Explanation.noMatch(
+              String.format("%s: document has no label in [%s]", getQuery(), labelField));
+        }
+
+        BytesRef bytes = values.binaryValue();
+        LabelExplanation explanation =
+            LabelExplanation.explain(
+                "label",
+                BinaryAccessExpression.decode(bytes.bytes, bytes.offset),
+                authorizations);
+        return AccumuloAccessQuery.explanation(
+            explanation,
+            String.format("%s: %s", getQuery(), explanation.description()),
+            score());
+      }
+    };
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    if (visitor.acceptField(labelField)) {
+      visitor.visitLeaf(this);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    return AccumuloAccessQueryBuilder.NAME
+        + "("
+        + labelField
+        + ", authorizations="
+        + authorizations
+        + ", binary"
+        + ")";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!sameClassAs(other)) {
+      return false;
+    }
+
+    BinaryLabelAccessQuery that = (BinaryLabelAccessQuery) other;
+    return labelField.equals(that.labelField)
+        && authorizations.equals(that.authorizations)
+        && (profile == null) == (that.profile == null);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(classHash(), labelField, authorizations, profile == null);
+  }
+}
@@ -0,0 +1,363 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessProfile;
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExtractor;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongBitSet;
+
+/**
+ * A query evaluating the labels of a keyword field with doc values block by block, instead of one
+ * document at a time like the filter script. The label ordinals of {@link #BLOCK_SIZE} documents
+ * are read into primitive arrays, the distinct ordinals of the block are evaluated, each at most
+ * once per segment, and the verdicts are scattered into a bit set of the block that the scorer
+ * then iterates.
+ *
+ * <p>Reading, evaluating and scattering run as separate tight loops, which keeps the doc values
+ * and the evaluator out of each other's way in the CPU caches and lets the JIT compile each loop
+ * on its own.
+ *
+ * <p>Blocks only pay off when most of their documents are asked for. When another clause leads
+ * the iteration and matches few documents, every advance would load a block for a single
+ * document, so the documents of that clause are verified one at a time instead.
+ */
+public class BlockAccessQuery extends Query {
+  static final int BLOCK_SIZE = 512;
+
+  private final String labelField;
+  private final List<String> authorizations;
+  private final LabelExtractor.Policy policy;
+  private final AccessStats stats;
+  // parsed authorizations shared with other queries, not part of equality
+  private final LabelEvaluator evaluator;
+  private final AccessProfile profile;
+
+  public BlockAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      AccessStats stats) {
+    this(labelField, authorizations, policy, stats, null, null);
+  }
+
+  /** Creates a query copying the given, already parsed evaluator of the authorizations. */
+  BlockAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      AccessStats stats,
+      LabelEvaluator evaluator) {
+    this(labelField, authorizations, policy, stats, evaluator, null);
+  }
+
+  private BlockAccessQuery(
+      String labelField,
+      List<String> authorizations,
+      LabelExtractor.Policy policy,
+      AccessStats stats,
+      LabelEvaluator evaluator,
+      AccessProfile profile) {
+    this.labelField = Objects.requireNonNull(labelField);
+    this.authorizations = authorizations.stream().distinct().sorted().toList();
+    this.policy = Objects.requireNonNull(policy);
+    this.stats = stats == null ? new AccessStats() : stats;
+    this.evaluator = evaluator;
+    this.profile = profile;
+  }
+
+  /** Returns a copy of this query recording an {@link AccessProfile}. */
+  BlockAccessQuery profiled() {
+    return new BlockAccessQuery(
+        labelField, authorizations, policy, stats, evaluator, new AccessProfile());
+  }
+
+  public String getLabelField() {
+    return labelField;
+  }
+
+  public List<String> getAuthorizations() {
+    return authorizations;
+  }
+
+  /** Returns the profile of the segments searched so far, or null if the query is not profiled. */
+  public AccessProfile getProfile() {
+    return profile;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+    // every ordinal is evaluated at most once per segment, so verdicts need no cache
+    LabelEvaluator evaluator =
+        this.evaluator != null
+            ? this.evaluator.withEmptyCache(0)
+            : new LabelEvaluator(authorizations, LabelEvaluator.Type.ACCUMULO, 0, stats);
+
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        ScorerSupplier scorerSupplier = scorerSupplier(context);
+        return scorerSupplier == null ? null : scorerSupplier.get(Long.MAX_VALUE);
+      }
+
+      @Override
+      public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+        FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(labelField);
+
+        if (fieldInfo == null || fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET) {
+          return null;
+        }
+
+        SortedSetDocValues values = DocValues.getSortedSet(context.reader(), labelField);
+        int maxDoc = context.reader().maxDoc();
+        Weight weight = this;
+
+        return new ScorerSupplier() {
+          @Override
+          public Scorer get(long leadCost) throws IOException {
+            // a lead matching less than an eighth of the segment skips most of every block
+            if (leadCost < (maxDoc >>> 3)) {
+              stats.recordSegment("doc_values");
+              return new ConstantScoreScorer(
+                  weight,
+                  score(),
+                  scoreMode,
+                  new AccumuloAccessQuery.AccessTwoPhaseIterator(
+                      values, policy, evaluator.withEmptyCache(), segment(context, "doc_values")));
+            }
+
+            stats.recordSegment("block");
+            return new ConstantScoreScorer(
+                weight,
+                score(),
+                scoreMode,
+                new BlockIterator(values, maxDoc, evaluator, segment(context, "block")));
+          }
+
+          @Override
+          public long cost() {
+            return values.cost();
+          }
+        };
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext context) {
+        return profile == null && DocValues.isCacheable(context, labelField);
+      }
+    };
+  }
+
+  private AccessProfile.Segment segment(LeafReaderContext context, String strategy) {
+    return profile == null
+        ? AccessProfile.Segment.DISABLED
+        : profile.segment(context.ord, strategy);
+  }
+
+  /** Iterates the accessible documents of a segment, evaluating them a block at a time. */
+  private class BlockIterator extends DocIdSetIterator {
+    private final SortedSetDocValues values;
+    private final int maxDoc;
+    private final LabelEvaluator evaluator;
+    private final AccessProfile.Segment segment;
+    // the verdicts of the segment's ordinals
+    private final LongBitSet evaluated;
+    private final LongBitSet accessible;
+    // the labeled documents of the block relative to its start, and where their ordinals start
+    private final int[] docs = new int[BLOCK_SIZE];
+    private final int[] ordStarts = new int[BLOCK_SIZE + 1];
+    private long[] ords = new long[BLOCK_SIZE];
+    private long[] sortedOrds = new long[BLOCK_SIZE];
+    // the accessible documents of the block relative to its start
+    private final FixedBitSet matches = new FixedBitSet(BLOCK_SIZE);
+    private int blockStart;
+    private int blockEnd;
+    private int doc = -1;
+
+    private BlockIterator(
+        SortedSetDocValues values,
+        int maxDoc,
+        LabelEvaluator evaluator,
+        AccessProfile.Segment segment) {
+      this.values = values;
+      this.maxDoc = maxDoc;
+      this.evaluator = evaluator.withEmptyCache();
+      this.segment = segment;
+      this.evaluated = new LongBitSet(values.getValueCount());
+      this.accessible = new LongBitSet(values.getValueCount());
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      while (target < maxDoc) {
+        if (target >= blockEnd) {
+          loadBlock(target);
+        }
+
+        int next = matches.nextSetBit(target - blockStart);
+
+        if (next != NO_MORE_DOCS) {
+          return doc = blockStart + next;
+        }
+
+        target = blockEnd;
+      }
+
+      return doc = NO_MORE_DOCS;
+    }
+
+    @Override
+    public long cost() {
+      return values.cost();
+    }
+
+    private void loadBlock(int start) throws IOException {
+      long time = segment.start();
+      blockStart = start;
+      blockEnd = (int) Math.min(maxDoc, (long) start + BLOCK_SIZE);
+      matches.clear(0, BLOCK_SIZE);
+
+      int count = 0;
+      int ordCount = 0;
+      int current = values.docID() < start ? values.advance(start) : values.docID();
+
+      for (; current < blockEnd; current = values.nextDoc()) {
+        int valueCount = values.docValueCount();
+
+        if (ordCount + valueCount > ords.length) {
+          ords = ArrayUtil.grow(ords, ordCount + valueCount);
+        }
+
+        docs[count] = current - start;
+        ordStarts[count] = ordCount;
+        count++;
+
+        for (int i = 0; i < valueCount; i++) {
+          ords[ordCount++] = values.nextOrd();
+        }
+      }
+
+      ordStarts[count] = ordCount;
+      segment.loaded(time);
+
+      evaluateDistinct(ordCount);
+      scatter(count);
+    }
+
+    /** Evaluates the ordinals of the block not evaluated yet, each once. */
+    private void evaluateDistinct(int ordCount) throws IOException {
+      if (sortedOrds.length < ordCount) {
+        sortedOrds = new long[ords.length];
+      }
+
+      // in order, so the terms of the ordinals are looked up sequentially
+      System.arraycopy(ords, 0, sortedOrds, 0, ordCount);
+      Arrays.sort(sortedOrds, 0, ordCount);
+      long previous = -1;
+
+      for (int i = 0; i < ordCount; i++) {
+        long ord = sortedOrds[i];
+
+        if (ord == previous || evaluated.getAndSet(ord)) {
+          previous = ord;
+          continue;
+        }
+
+        previous = ord;
+        long time = segment.start();
+        BytesRef term = values.lookupOrd(ord);
+        time = segment.loaded(time);
+        segment.distinctLabel();
+        String label = LabelExtractor.sanitizeLabel(term.utf8ToString(), policy);
+        time = segment.extracted(time);
+
+        if (evaluator.canAccess(label)) {
+          accessible.set(ord);
+        }
+
+        segment.evaluated(time);
+      }
+    }
+
+    /** Marks the documents of the block with at least one accessible ordinal. */
+    private void scatter(int count) {
+      for (int i = 0; i < count; i++) {
+        for (int j = ordStarts[i]; j < ordStarts[i + 1]; j++) {
+          if (accessible.get(ords[j])) {
+            matches.set(docs[i]);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    if (visitor.acceptField(labelField)) {
+      visitor.visitLeaf(this);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    return AccumuloAccessQueryBuilder.NAME
+        + "("
+        + labelField
+        + ", authorizations="
+        + authorizations
+        + ", policy="
+        + policy
+        + ", block"
+        + ")";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!sameClassAs(other)) {
+      return false;
+    }
+
+    BlockAccessQuery that = (BlockAccessQuery) other;
+    return labelField.equals(that.labelField)
+        && authorizations.equals(that.authorizations)
+        && policy == that.policy
+        && (profile == null) == (that.profile == null);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(classHash(), labelField, authorizations, policy, profile == null);
+  }
+}
@@ -0,0 +1,9 @@
+package com.elasticsearch.data.elasticsearch;
+
+/** How the verdicts of multiple label fields are combined. */
+public enum LabelCombination {
+  /** A document is accessible if the labels of all fields are accessible. */
+  AND,
+  /** A document is accessible if the label of any field is accessible. */
+  OR
+}
@@ -0,0 +1,17 @@
+package com.elasticsearch.data.elasticsearch;
+
+/** Where the label of a document is read from. */
+public enum LabelSource {
+  /** Extract the label from the parsed {@code _source} of the document. */
+  SOURCE,
+  /**
+   * Read the label from the doc values of a keyword field, falling back to {@code _source} when
+   * the field has no doc values.
+   */
+  DOC_VALUES,
+  /**
+   * Stream the raw {@code _source} of the document and only read the parts the label field points
+   * to, without parsing the whole document into a map.
+   */
+  PARTIAL_SOURCE
+}
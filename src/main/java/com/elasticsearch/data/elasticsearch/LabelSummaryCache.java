@@ -0,0 +1,183 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * A node level cache of the distinct labels of each segment and label field, read once from the
+ * terms dictionary, or from the doc values of fields that are not indexed. Only segments with at
+ * most {@link #MAX_LABELS_SETTING} distinct labels are summarized, which is common when data is
+ * ingested per source feed.
+ *
+ * <p>Evaluating the summary of a segment tells whether every label of the segment is accessible,
+ * so that the segment matches every labeled document, or none is, so that the segment is skipped.
+ * The summary includes the labels of deleted documents, which only makes it conservative. Entries
+ * of a segment are evicted when the segment is closed.
+ */
+public class LabelSummaryCache implements IndexReader.ClosedListener {
+  private static final Logger logger = LogManager.getLogger(LabelSummaryCache.class);
+
+  public static final Setting<Integer> MAX_LABELS_SETTING =
+      Setting.intSetting("accumulo_access.label_summary.max_labels", 64, 0, Property.NodeScope);
+
+  public static final Setting<ByteSizeValue> SIZE_SETTING =
+      Setting.memorySizeSetting("accumulo_access.label_summary.size", "0.1%", Property.NodeScope);
+
+  // roughly an entry of the cache with its key and summary, so that the summaries of segments
+  // without labels or with too many of them are bounded by the cache size as well
+  static final long ENTRY_RAM_BYTES = 128;
+
+  private record Key(IndexReader.CacheKey segmentKey, String labelField) {}
+
+  // labels is null for segments with too many distinct labels
+  private record Summary(List<String> labels, long ramBytesUsed) {}
+
+  private final int maxLabels;
+  private final Cache<Key, Summary> cache;
+  // the keys of each open segment, so that closing a segment does not scan the whole cache
+  private final Map<IndexReader.CacheKey, Set<Key>> keysBySegment = new ConcurrentHashMap<>();
+
+  public LabelSummaryCache(Settings settings) {
+    this.maxLabels = MAX_LABELS_SETTING.get(settings);
+    long maxWeight = SIZE_SETTING.get(settings).getBytes();
+
+    this.cache =
+        CacheBuilder.<Key, Summary>builder()
+            .setMaximumWeight(maxWeight)
+            .weigher((key, summary) -> summary.ramBytesUsed())
+            .removalListener(
+                notification -> {
+                  Set<Key> keys = keysBySegment.get(notification.getKey().segmentKey());
+
+                  if (keys != null) {
+                    keys.remove(notification.getKey());
+                  }
+                })
+            .build();
+
+    logger.debug(
+        "created label summary cache of segments with at most [{}] labels and maximum size of "
+            + "[{}] bytes",
+        maxLabels,
+        maxWeight);
+  }
+
+  /**
+   * Returns the distinct raw values of the label field in the segment, or null if the segment has
+   * more than {@link #MAX_LABELS_SETTING} of them.
+   */
+  public List<String> labels(LeafReaderContext context, String labelField) throws IOException {
+    IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+
+    // readers without a core cache key cannot be invalidated, so do not cache them
+    if (cacheHelper == null) {
+      return summarize(context.reader(), labelField).labels();
+    }
+
+    try {
+      return cache
+          .computeIfAbsent(
+              register(cacheHelper, new Key(cacheHelper.getKey(), labelField)),
+              key -> summarize(context.reader(), labelField))
+          .labels();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+
+      throw new IllegalStateException("Failed to summarize labels", e.getCause());
+    }
+  }
+
+  private Summary summarize(LeafReader reader, String labelField) throws IOException {
+    TermsEnum termsEnum;
+    long size;
+    Terms terms = reader.terms(labelField);
+
+    if (terms != null) {
+      termsEnum = terms.iterator();
+      size = terms.size();
+    } else {
+      SortedSetDocValues values = reader.getSortedSetDocValues(labelField);
+
+      if (values == null) {
+        return new Summary(List.of(), ENTRY_RAM_BYTES);
+      }
+
+      termsEnum = values.termsEnum();
+      size = values.getValueCount();
+    }
+
+    // the size is -1 when the terms dictionary does not know it
+    if (size > maxLabels) {
+      return new Summary(null, ENTRY_RAM_BYTES);
+    }
+
+    List<String> labels = new ArrayList<>();
+    long ramBytesUsed = ENTRY_RAM_BYTES;
+
+    for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+      if (labels.size() == maxLabels) {
+        return new Summary(null, ENTRY_RAM_BYTES);
+      }
+
+      String label = term.utf8ToString();
+      labels.add(label);
+      // roughly a String header and its bytes
+      ramBytesUsed += 40 + label.length();
+    }
+
+    return new Summary(List.copyOf(labels), ramBytesUsed);
+  }
+
+  /** Records the key of a segment, listening for the segment to close on its first key. */
+  private Key register(IndexReader.CacheHelper cacheHelper, Key key) {
+    Set<Key> keys = keysBySegment.get(cacheHelper.getKey());
+
+    if (keys == null) {
+      Set<Key> created = ConcurrentHashMap.newKeySet();
+      keys = keysBySegment.putIfAbsent(cacheHelper.getKey(), created);
+
+      if (keys == null) {
+        keys = created;
+        cacheHelper.addClosedListener(this);
+      }
+    }
+
+    keys.add(key);
+    return key;
+  }
+
+  @Override
+  public void onClose(IndexReader.CacheKey segmentKey) {
+    Set<Key> keys = keysBySegment.remove(segmentKey);
+
+    if (keys != null) {
+      keys.forEach(cache::invalidate);
+    }
+  }
+
+  public int count() {
+    return cache.count();
+  }
+}
@@ -0,0 +1,102 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+/** The access stats of a single node. */
+public class NodeAccessStats extends BaseNodeResponse implements ToXContentFragment {
+  private final AccessStats.Snapshot stats;
+
+  public NodeAccessStats(DiscoveryNode node, AccessStats.Snapshot stats) {
+    super(node);
+    this.stats = stats;
+  }
+
+  public NodeAccessStats(StreamInput in) throws IOException {
+    super(in);
+    stats =
+        new AccessStats.Snapshot(
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLongArray(),
+            new TreeMap<>(in.readMap(StreamInput::readString, StreamInput::readVLong)));
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    super.writeTo(out);
+    out.writeVLong(stats.evaluations());
+    out.writeVLong(stats.allowed());
+    out.writeVLong(stats.denied());
+    out.writeVLong(stats.extractionFailures());
+    out.writeVLong(stats.parseErrors());
+    out.writeVLong(stats.cacheHits());
+    out.writeVLong(stats.cacheMisses());
+    out.writeVLong(stats.segments());
+    out.writeVLong(stats.segmentTimeNanos());
+    out.writeVLongArray(stats.segmentHistogram());
+    out.writeMap(stats.strategySegments(), StreamOutput::writeString, StreamOutput::writeVLong);
+  }
+
+  public AccessStats.Snapshot stats() {
+    return stats;
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.field("evaluations", stats.evaluations());
+    builder.field("allowed", stats.allowed());
+    builder.field("denied", stats.denied());
+    builder.field("extraction_failures", stats.extractionFailures());
+    builder.field("parse_errors", stats.parseErrors());
+
+    builder.startObject("verdict_cache");
+    builder.field("hits", stats.cacheHits());
+    builder.field("misses", stats.cacheMisses());
+    builder.endObject();
+
+    builder.startObject("segment_evaluation");
+    builder.field("count", stats.segments());
+    builder.field("time_in_nanos", stats.segmentTimeNanos());
+    builder.startArray("histogram");
+
+    long[] histogram = stats.segmentHistogram();
+
+    for (int i = 0; i < histogram.length; i++) {
+      builder.startObject();
+
+      if (i < AccessStats.HISTOGRAM_BOUNDS_MICROS.length) {
+        builder.field("lt_micros", AccessStats.HISTOGRAM_BOUNDS_MICROS[i]);
+      }
+
+      builder.field("count", histogram[i]);
+      builder.endObject();
+    }
+
+    builder.endArray();
+    builder.startObject("strategies");
+
+    for (Map.Entry<String, Long> strategy : stats.strategySegments().entrySet()) {
+      builder.field(strategy.getKey(), strategy.getValue());
+    }
+
+    builder.endObject();
+    builder.endObject();
+    return builder;
+  }
+}
@@ -0,0 +1,151 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.LabelPath;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.XContentParserConfiguration;
+import org.elasticsearch.xcontent.XContentType;
+
+/**
+ * Streams the raw {@code _source} of a document and only materializes the parts a set of {@link
+ * LabelPath}s look at. Every other field is skipped without being allocated, and parsing stops as
+ * soon as the label fields of all paths are found at the top level of the document.
+ *
+ * <p>The returned map holds the same values as the fully parsed source for the keys of the paths,
+ * so extracting the labels from it gives the same results as extracting them from {@code _source}.
+ * All paths are read in a single pass over the source.
+ */
+public class PartialSourceReader {
+  // stands in for values the label extraction never uses, other than checking their type
+  private static final Object IGNORED = Boolean.FALSE;
+
+  private final LabelPath[] labelPaths;
+
+  public PartialSourceReader(LabelPath labelPath) {
+    this(List.of(labelPath));
+  }
+
+  public PartialSourceReader(List<LabelPath> labelPaths) {
+    this.labelPaths = labelPaths.toArray(new LabelPath[0]);
+  }
+
+  public Map<String, Object> read(BytesReference source, XContentType xContentType)
+      throws IOException {
+    try (XContentParser parser =
+        XContentHelper.createParser(XContentParserConfiguration.EMPTY, source, xContentType)) {
+      if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+        return Map.of();
+      }
+
+      return readObject(parser, 0, labelPaths);
+    }
+  }
+
+  /**
+   * Reads the object the parser is positioned on, keeping only the keys the paths look up at the
+   * nesting level. Every path of {@code paths} has been drilled down into this object.
+   */
+  private Map<String, Object> readObject(XContentParser parser, int level, LabelPath[] paths)
+      throws IOException {
+    Map<String, Object> map = new HashMap<>(4);
+    // the paths whose label field was found at the top level
+    boolean[] found = level == 0 ? new boolean[paths.length] : null;
+    int remaining = paths.length;
+
+    for (XContentParser.Token token = parser.nextToken();
+        token != XContentParser.Token.END_OBJECT;
+        token = parser.nextToken()) {
+      String name = parser.currentName();
+      parser.nextToken();
+
+      boolean label = false;
+      LabelPath[] nested = null;
+
+      for (int i = 0; i < paths.length; i++) {
+        if (name.equals(paths[i].key(level))) {
+          label = true;
+
+          if (found != null && !found[i]) {
+            found[i] = true;
+            remaining--;
+          }
+        } else if (name.equals(paths[i].head(level))) {
+          nested = append(nested, paths[i]);
+        }
+      }
+
+      if (!label && nested == null) {
+        parser.skipChildren();
+        continue;
+      }
+
+      map.put(name, readValue(parser, level + 1, label, nested));
+
+      // the label fields take precedence over nested fields, nothing else is needed
+      if (found != null && remaining == 0) {
+        return map;
+      }
+    }
+
+    return map;
+  }
+
+  /**
+   * Reads a value, keeping strings and numbers if it is a label field, and the objects the nested
+   * paths drill down into.
+   */
+  private Object readValue(XContentParser parser, int level, boolean label, LabelPath[] nested)
+      throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_STRING:
+        return label ? parser.text() : IGNORED;
+      case VALUE_NUMBER:
+        return label ? parser.numberValue() : IGNORED;
+      case VALUE_NULL:
+        return label ? null : IGNORED;
+      case START_OBJECT:
+        if (nested == null) {
+          parser.skipChildren();
+          return Map.of();
+        }
+
+        return readObject(parser, level, nested);
+      case START_ARRAY:
+        List<Object> list = new ArrayList<>();
+
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+          if (parser.currentToken() == XContentParser.Token.START_OBJECT && nested != null) {
+            list.add(readObject(parser, level, nested));
+          } else if (label && parser.currentToken() == XContentParser.Token.VALUE_STRING) {
+            list.add(parser.text());
+          } else if (label && parser.currentToken() == XContentParser.Token.VALUE_NUMBER) {
+            list.add(parser.numberValue());
+          } else {
+            parser.skipChildren();
+            list.add(IGNORED);
+          }
+        }
+
+        return list;
+      default:
+        return IGNORED;
+    }
+  }
+
+  private static LabelPath[] append(LabelPath[] paths, LabelPath path) {
+    if (paths == null) {
+      return new LabelPath[] {path};
+    }
+
+    LabelPath[] appended = Arrays.copyOf(paths, paths.length + 1);
+    appended[paths.length] = path;
+    return appended;
+  }
+}
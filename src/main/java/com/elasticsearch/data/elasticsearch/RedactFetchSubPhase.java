@@ -0,0 +1,189 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelRedactor;
+import com.elasticsearch.data.LabelVerdictCache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.FetchContext;
+import org.elasticsearch.search.fetch.FetchSubPhase;
+import org.elasticsearch.search.fetch.FetchSubPhaseProcessor;
+import org.elasticsearch.search.fetch.StoredFieldsSpec;
+import org.elasticsearch.search.fetch.subphase.FetchDocValuesContext;
+import org.elasticsearch.search.fetch.subphase.FetchFieldsContext;
+import org.elasticsearch.search.fetch.subphase.InnerHitsContext;
+import org.elasticsearch.search.fetch.subphase.ScriptFieldsContext;
+import org.elasticsearch.search.fetch.subphase.highlight.SearchHighlightContext;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+
+/**
+ * Removes the elements of the returned {@code _source} the user cannot see, when the search request
+ * has an {@link RedactSearchExtBuilder accumulo_redact} extension. Every element at the configured
+ * path is checked on its own label, so a hit is returned with only its accessible elements
+ * instead of being hidden or returned whole.
+ *
+ * <p>The label path is compiled once per shard request, and the verdicts of repeated labels are
+ * cached across the hits of the request. Only the {@code _source} is redacted, so requests that
+ * also return values through other fetch phases are rejected.
+ */
+public class RedactFetchSubPhase implements FetchSubPhase {
+  private final AccessStats stats;
+  private final AuthorizationProfiles authorizationProfiles;
+
+  public RedactFetchSubPhase(AccessStats stats, AuthorizationProfiles authorizationProfiles) {
+    this.stats = stats;
+    this.authorizationProfiles = authorizationProfiles;
+  }
+
+  @Override
+  public FetchSubPhaseProcessor getProcessor(FetchContext fetchContext) {
+    RedactSearchExtBuilder ext =
+        (RedactSearchExtBuilder) fetchContext.getSearchExt(RedactSearchExtBuilder.NAME);
+
+    if (ext == null) {
+      return null;
+    }
+
+    rejectUnredactedValues(fetchContext);
+    LabelRedactor redactor =
+        new LabelRedactor(ext.path(), ext.labelField(), ext.labelExtractionPolicy());
+    LabelEvaluator evaluator = evaluator(ext, fetchContext.query());
+
+    return new FetchSubPhaseProcessor() {
+      @Override
+      public void setNextReader(LeafReaderContext readerContext) {}
+
+      @Override
+      public StoredFieldsSpec storedFieldsSpec() {
+        // the source has already been loaded into the hit by the fetch source phase
+        return StoredFieldsSpec.NO_REQUIREMENTS;
+      }
+
+      @Override
+      public void process(HitContext hitContext) throws IOException {
+        SearchHit hit = hitContext.hit();
+
+        if (!hit.hasSource()) {
+          return;
+        }
+
+        Map<String, Object> source = hit.getSourceAsMap();
+
+        // only serialize the source again if an element was removed
+        if (redactor.redact(source, evaluator) > 0) {
+          XContentBuilder builder = XContentFactory.jsonBuilder().map(source);
+          hit.sourceRef(BytesReference.bytes(builder));
+        }
+      }
+    };
+  }
+
+  /** Rejects the parts of the request that would return the values of a hit without redaction. */
+  private static void rejectUnredactedValues(FetchContext fetchContext) {
+    List<String> unredacted = new ArrayList<>();
+    FetchFieldsContext fetchFields = fetchContext.fetchFieldsContext();
+    FetchDocValuesContext docValues = fetchContext.docValuesContext();
+    ScriptFieldsContext scriptFields = fetchContext.scriptFields();
+    SearchHighlightContext highlight = fetchContext.highlight();
+    InnerHitsContext innerHits = fetchContext.innerHits();
+
+    if (fetchFields != null && !fetchFields.fields().isEmpty()) {
+      unredacted.add("fields");
+    }
+
+    if (docValues != null && !docValues.fields().isEmpty()) {
+      unredacted.add("docvalue_fields");
+    }
+
+    if (scriptFields != null && !scriptFields.fields().isEmpty()) {
+      unredacted.add("script_fields");
+    }
+
+    if (highlight != null && !highlight.fields().isEmpty()) {
+      unredacted.add("highlight");
+    }
+
+    if (innerHits != null && !innerHits.getInnerHits().isEmpty()) {
+      unredacted.add("inner_hits");
+    }
+
+    if (!unredacted.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] only redacts the _source and cannot be combined with %s",
+              RedactSearchExtBuilder.NAME,
+              unredacted));
+    }
+  }
+
+  private LabelEvaluator evaluator(RedactSearchExtBuilder ext, Query query) {
+    if (ext.authorizationProfile() != null) {
+      return authorizationProfiles
+          .get(ext.authorizationProfile())
+          .evaluator(LabelEvaluator.Type.ACCUMULO, LabelVerdictCache.DEFAULT_SIZE);
+    }
+
+    List<String> authorizations = ext.authorizations();
+
+    if (authorizations == null) {
+      authorizations = queryAuthorizations(query);
+    }
+
+    return new LabelEvaluator(
+        authorizations, LabelEvaluator.Type.ACCUMULO, LabelVerdictCache.DEFAULT_SIZE, stats);
+  }
+
+  /** Returns the authorizations of the {@code accumulo_access} query of the request. */
+  private static List<String> queryAuthorizations(Query query) {
+    List<List<String>> found = new ArrayList<>();
+
+    query.visit(
+        new QueryVisitor() {
+          @Override
+          public void visitLeaf(Query leaf) {
+            if (leaf instanceof AccumuloAccessQuery accessQuery) {
+              found.add(accessQuery.getAuthorizations());
+            } else if (leaf instanceof BinaryLabelAccessQuery accessQuery) {
+              found.add(accessQuery.getAuthorizations());
+            } else if (leaf instanceof BlockAccessQuery accessQuery) {
+              found.add(accessQuery.getAuthorizations());
+            }
+          }
+
+          @Override
+          public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+            // authorizations of excluded clauses do not describe the user
+            return occur == BooleanClause.Occur.MUST_NOT ? QueryVisitor.EMPTY_VISITOR : this;
+          }
+        });
+
+    if (found.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires authorizations, either in the extension or from an [%s] query",
+              RedactSearchExtBuilder.NAME,
+              AccumuloAccessQueryBuilder.NAME));
+    }
+
+    if (found.stream().distinct().count() > 1) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] requires explicit authorizations when the request has [%s] queries with "
+                  + "different authorizations",
+              RedactSearchExtBuilder.NAME,
+              AccumuloAccessQueryBuilder.NAME));
+    }
+
+    return found.get(0);
+  }
+}
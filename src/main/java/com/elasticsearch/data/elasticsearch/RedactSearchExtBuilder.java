@@ -0,0 +1,223 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExtractor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.SearchExtBuilder;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+
+/**
+ * The search request extension configuring {@link RedactFetchSubPhase}.
+ *
+ * <pre>
+ * "ext": {
+ *   "accumulo_redact": {
+ *     "path": "identity_documents",
+ *     "label_field": "issuing_country",
+ *     "label_extraction_policy": "NONE"
+ *   }
+ * }
+ * </pre>
+ *
+ * The authorizations are either given with {@code authorizations} or {@code
+ * authorization_profile}, or taken from the {@code accumulo_access} query of the request.
+ */
+public class RedactSearchExtBuilder extends SearchExtBuilder {
+  public static final String NAME = "accumulo_redact";
+
+  private static final ParseField PATH = new ParseField("path");
+  private static final ParseField LABEL_FIELD = new ParseField("label_field");
+  private static final ParseField LABEL_EXTRACTION_POLICY =
+      new ParseField("label_extraction_policy");
+  private static final ParseField AUTHORIZATIONS = new ParseField("authorizations");
+  private static final ParseField AUTHORIZATION_PROFILE = new ParseField("authorization_profile");
+
+  private final String path;
+  private final String labelField;
+  private final LabelExtractor.Policy policy;
+  private final List<String> authorizations;
+  private final String authorizationProfile;
+
+  public RedactSearchExtBuilder(
+      String path,
+      String labelField,
+      LabelExtractor.Policy policy,
+      List<String> authorizations,
+      String authorizationProfile) {
+    if (path == null || path.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format("[%s] requires [%s]", NAME, PATH.getPreferredName()));
+    }
+
+    if (labelField == null || labelField.isEmpty()) {
+      throw new IllegalArgumentException(
+          String.format("[%s] requires [%s]", NAME, LABEL_FIELD.getPreferredName()));
+    }
+
+    if (authorizations != null && authorizationProfile != null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] accepts either [%s] or [%s]",
+              NAME,
+              AUTHORIZATIONS.getPreferredName(),
+              AUTHORIZATION_PROFILE.getPreferredName()));
+    }
+
+    this.path = path;
+    this.labelField = labelField;
+    this.policy = Objects.requireNonNull(policy);
+    this.authorizations = authorizations == null ? null : List.copyOf(authorizations);
+    this.authorizationProfile = authorizationProfile;
+  }
+
+  public RedactSearchExtBuilder(StreamInput in) throws IOException {
+    path = in.readString();
+    labelField = in.readString();
+    policy = in.readEnum(LabelExtractor.Policy.class);
+    authorizations = in.readOptionalStringCollectionAsList();
+    authorizationProfile = in.readOptionalString();
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    out.writeString(path);
+    out.writeString(labelField);
+    out.writeEnum(policy);
+    out.writeOptionalStringCollection(authorizations);
+    out.writeOptionalString(authorizationProfile);
+  }
+
+  public String path() {
+    return path;
+  }
+
+  public String labelField() {
+    return labelField;
+  }
+
+  public LabelExtractor.Policy labelExtractionPolicy() {
+    return policy;
+  }
+
+  /** Returns the authorizations of the extension, or null if they are not given explicitly. */
+  public List<String> authorizations() {
+    return authorizations;
+  }
+
+  public String authorizationProfile() {
+    return authorizationProfile;
+  }
+
+  public static RedactSearchExtBuilder fromXContent(XContentParser parser) throws IOException {
+    String path = null;
+    String labelField = null;
+    LabelExtractor.Policy policy = LabelExtractor.Policy.NONE;
+    List<String> authorizations = null;
+    String authorizationProfile = null;
+
+    String currentFieldName = null;
+    XContentParser.Token token = parser.currentToken();
+
+    if (token != XContentParser.Token.START_OBJECT) {
+      token = parser.nextToken();
+    }
+
+    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+      if (token == XContentParser.Token.FIELD_NAME) {
+        currentFieldName = parser.currentName();
+      } else if (token == XContentParser.Token.START_ARRAY
+          && AUTHORIZATIONS.match(currentFieldName, parser.getDeprecationHandler())) {
+        authorizations = new ArrayList<>();
+
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+          authorizations.add(parser.text());
+        }
+      } else if (token.isValue()) {
+        if (PATH.match(currentFieldName, parser.getDeprecationHandler())) {
+          path = parser.text();
+        } else if (LABEL_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+          labelField = parser.text();
+        } else if (LABEL_EXTRACTION_POLICY.match(
+            currentFieldName, parser.getDeprecationHandler())) {
+          policy = LabelExtractor.Policy.valueOf(parser.text());
+        } else if (AUTHORIZATIONS.match(currentFieldName, parser.getDeprecationHandler())) {
+          authorizations = LabelEvaluator.parseAuthorizations(parser.text());
+        } else if (AUTHORIZATION_PROFILE.match(currentFieldName, parser.getDeprecationHandler())) {
+          authorizationProfile = parser.text();
+        } else {
+          throw new ParsingException(
+              parser.getTokenLocation(),
+              "[" + NAME + "] does not support [" + currentFieldName + "]");
+        }
+      } else {
+        throw new ParsingException(
+            parser.getTokenLocation(),
+            "[" + NAME + "] unknown token [" + token + "] after [" + currentFieldName + "]");
+      }
+    }
+
+    return new RedactSearchExtBuilder(
+        path, labelField, policy, authorizations, authorizationProfile);
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.startObject(NAME);
+    builder.field(PATH.getPreferredName(), path);
+    builder.field(LABEL_FIELD.getPreferredName(), labelField);
+    builder.field(LABEL_EXTRACTION_POLICY.getPreferredName(), policy.name());
+
+    if (authorizations != null) {
+      builder.stringListField(AUTHORIZATIONS.getPreferredName(), authorizations);
+    }
+
+    if (authorizationProfile != null) {
+      builder.field(AUTHORIZATION_PROFILE.getPreferredName(), authorizationProfile);
+    }
+
+    return builder.endObject();
+  }
+
+  @Override
+  public String getWriteableName() {
+    return NAME;
+  }
+
+  @Override
+  public TransportVersion getMinimalSupportedVersion() {
+    return TransportVersions.ZERO;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+
+    RedactSearchExtBuilder that = (RedactSearchExtBuilder) other;
+    return path.equals(that.path)
+        && labelField.equals(that.labelField)
+        && policy == that.policy
+        && Objects.equals(authorizations, that.authorizations)
+        && Objects.equals(authorizationProfile, that.authorizationProfile);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(path, labelField, policy, authorizations, authorizationProfile);
+  }
+}
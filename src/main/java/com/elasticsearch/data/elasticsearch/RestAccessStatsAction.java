@@ -0,0 +1,45 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+import java.util.List;
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestActions;
+
+/**
+ * Returns the access stats of the nodes.
+ *
+ * <pre>
+ * GET _nodes/accumulo_access/stats
+ * GET _nodes/{nodeId}/accumulo_access/stats
+ * </pre>
+ */
+public class RestAccessStatsAction extends BaseRestHandler {
+
+  @Override
+  public String getName() {
+    return "accumulo_access_stats_action";
+  }
+
+  @Override
+  public List<Route> routes() {
+    return List.of(
+        new Route(GET, "/_nodes/accumulo_access/stats"),
+        new Route(GET, "/_nodes/{nodeId}/accumulo_access/stats"));
+  }
+
+  @Override
+  protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
+    String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodeId"));
+    AccessStatsRequest statsRequest = new AccessStatsRequest(nodesIds);
+
+    return channel ->
+        client.execute(
+            AccessStatsAction.INSTANCE,
+            statsRequest,
+            new RestActions.NodesResponseRestListener<>(channel));
+  }
+}
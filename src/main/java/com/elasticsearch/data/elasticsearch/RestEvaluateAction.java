@@ -0,0 +1,336 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelBatch;
+import com.elasticsearch.data.LabelEvaluator;
+import com.elasticsearch.data.LabelExplanation;
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelPath;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.ChunkedRestResponseBodyPart;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.FixedExecutorBuilder;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.elasticsearch.xcontent.XContentParser;
+
+/**
+ * Evaluates a batch of labels, or of documents whose labels are extracted, against one or more
+ * authorization sets.
+ *
+ * <pre>
+ * POST _accumulo_access/_evaluate
+ * {
+ *   "authorizations": ["IFSR,NPWMD", ["SDGT"]],
+ *   "label_field": "sanction_programs",
+ *   "label_extraction_policy": "SPLIT_OR",
+ *   "documents": [{"sanction_programs": "IFSR, SDGT"}]
+ * }
+ * </pre>
+ *
+ * The batch is evaluated on the {@link #THREAD_POOL} thread pool and the verdicts are streamed
+ * back as one NDJSON line per item, in the order of the items. With {@code "explain": true}, every
+ * line also explains each verdict by the tokens of the label, like the {@code accumulo_access}
+ * query does for the explain API.
+ *
+ * <p>The body is parsed in full before the first item is evaluated, so a batch may hold at most
+ * {@link #MAX_ITEMS_SETTING} items.
+ */
+public class RestEvaluateAction extends BaseRestHandler {
+  public static final String THREAD_POOL = "accumulo_access_evaluate";
+
+  public static final Setting<Integer> MAX_ITEMS_SETTING =
+      Setting.intSetting("accumulo_access.evaluate.max_items", 10_000, 1, Property.NodeScope);
+
+  // the number of items written per chunk of the response
+  private static final int ITEMS_PER_CHUNK = 256;
+
+  private final AccessStats stats;
+  private final int parallelism;
+  private final int maxItems;
+
+  public RestEvaluateAction(Settings settings, AccessStats stats) {
+    this.stats = stats;
+    this.parallelism = EsExecutors.allocatedProcessors(settings);
+    this.maxItems = MAX_ITEMS_SETTING.get(settings);
+  }
+
+  /** Returns the builder of the thread pool batches are evaluated on. */
+  public static ExecutorBuilder<?> executorBuilder(Settings settings) {
+    return new FixedExecutorBuilder(
+        settings,
+        THREAD_POOL,
+        EsExecutors.allocatedProcessors(settings),
+        1000,
+        "thread_pool." + THREAD_POOL,
+        EsExecutors.TaskTrackingConfig.DO_NOT_TRACK);
+  }
+
+  @Override
+  public String getName() {
+    return "accumulo_access_evaluate_action";
+  }
+
+  @Override
+  public List<Route> routes() {
+    return List.of(
+        new Route(GET, "/_accumulo_access/_evaluate"),
+        new Route(POST, "/_accumulo_access/_evaluate"));
+  }
+
+  @Override
+  protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client)
+      throws IOException {
+    Map<String, Object> body;
+
+    try (XContentParser parser = request.contentOrSourceParamParser()) {
+      body = parser.map();
+    }
+
+    // validates the request before the batch is forked to the thread pool
+    List<List<String>> authorizationSets = parseAuthorizations(body.get("authorizations"));
+    List<LabelEvaluator> evaluators = new ArrayList<>(authorizationSets.size());
+
+    for (List<String> authorizations : authorizationSets) {
+      evaluators.add(new LabelEvaluator(authorizations, LabelEvaluator.Type.ACCUMULO, 0, stats));
+    }
+
+    List<List<String>> explained =
+        Boolean.parseBoolean(String.valueOf(body.get("explain"))) ? authorizationSets : null;
+    Object documents = body.get("documents");
+    Object labels = body.get("labels");
+
+    if ((documents == null) == (labels == null)) {
+      throw new IllegalArgumentException("Requires either [documents] or [labels]");
+    }
+
+    LabelPath labelPath = null;
+
+    if (documents != null) {
+      if (!(body.get("label_field") instanceof String labelField)) {
+        throw new IllegalArgumentException("[documents] require [label_field]");
+      }
+
+      Object policy = body.getOrDefault("label_extraction_policy", "NONE");
+      labelPath = LabelPath.compile(labelField, LabelExtractor.Policy.valueOf(policy.toString()));
+    }
+
+    List<?> items =
+        requireItems(documents != null ? documents : labels, documents != null, maxItems);
+    LabelPath documentPath = labelPath;
+    ExecutorService executor = client.threadPool().executor(THREAD_POOL);
+
+    return channel ->
+        executor.execute(
+            () -> {
+              try {
+                LabelBatch batch = new LabelBatch(labels(items, documentPath), evaluators);
+                batch
+                    .evaluate(executor, parallelism)
+                    .whenComplete(
+                        (evaluated, e) -> {
+                          if (e != null) {
+                            sendFailure(channel, e);
+                          } else {
+                            channel.sendResponse(
+                                RestResponse.chunked(
+                                    RestStatus.OK, ndjson(evaluated, explained), null));
+                          }
+                        });
+              } catch (Exception e) {
+                sendFailure(channel, e);
+              }
+            });
+  }
+
+  private static List<List<String>> parseAuthorizations(Object authorizations) {
+    if (!(authorizations instanceof List<?> sets) || sets.isEmpty()) {
+      throw new IllegalArgumentException(
+          "[authorizations] must be a non-empty array of authorization sets");
+    }
+
+    List<List<String>> authorizationSets = new ArrayList<>(sets.size());
+
+    for (Object set : sets) {
+      authorizationSets.add(
+          set instanceof List<?> list
+              ? list.stream().map(Object::toString).toList()
+              : LabelEvaluator.parseAuthorizations(set.toString()));
+    }
+
+    return authorizationSets;
+  }
+
+  static List<?> requireItems(Object items, boolean documents, int maxItems) {
+    String name = documents ? "documents" : "labels";
+
+    if (!(items instanceof List<?> list)) {
+      throw new IllegalArgumentException(String.format("[%s] must be an array", name));
+    }
+
+    if (list.size() > maxItems) {
+      throw new IllegalArgumentException(
+          String.format(
+              "[%s] has [%d] items, more than the [%d] of [%s]",
+              name,
+              list.size(),
+              maxItems,
+              MAX_ITEMS_SETTING.getKey()));
+    }
+
+    return list;
+  }
+
+  /** Returns the label of every item, extracting the labels of documents with the path. */
+  @SuppressWarnings("unchecked")
+  private static List<String> labels(List<?> items, LabelPath labelPath) {
+    List<String> labels = new ArrayList<>(items.size());
+    LabelPath.Extractor extractor = labelPath == null ? null : labelPath.extractor();
+
+    for (Object item : items) {
+      if (extractor == null) {
+        // raw labels are access expressions already
+        labels.add(item == null ? null : item.toString());
+      } else if (item instanceof Map) {
+        CharSequence label = extractor.extractLabel((Map<String, Object>) item);
+        labels.add(label == null ? null : label.toString());
+      } else {
+        labels.add(null);
+      }
+    }
+
+    return labels;
+  }
+
+  /**
+   * Streams one line per item, {@link #ITEMS_PER_CHUNK} items at a time.
+   *
+   * @param explained the authorization sets to explain the verdicts of, or null
+   */
+  private static ChunkedRestResponseBodyPart ndjson(
+      LabelBatch batch, List<List<String>> explained) {
+    Iterator<CheckedConsumer<Writer, IOException>> chunks =
+        new Iterator<>() {
+          private int next;
+
+          @Override
+          public boolean hasNext() {
+            return next < batch.size();
+          }
+
+          @Override
+          public CheckedConsumer<Writer, IOException> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+
+            int from = next;
+            int to = Math.min(batch.size(), from + ITEMS_PER_CHUNK);
+            next = to;
+
+            return writer -> {
+              for (int item = from; item < to; item++) {
+                writer.write(line(batch, item, explained));
+                writer.write('\n');
+              }
+            };
+          }
+        };
+
+    return ChunkedRestResponseBodyPart.fromTextChunks("application/x-ndjson", chunks);
+  }
+
+  static String line(LabelBatch batch, int item, List<List<String>> explained)
+      throws IOException {
+    XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+    builder.field("item", item);
+
+    String label = batch.label(item);
+
+    if (label == null) {
+      builder.field("error", "no label");
+    } else if (batch.error(item) != null) {
+      builder.field("label", label);
+      builder.field("error", batch.error(item));
+    } else {
+      builder.field("label", label);
+      builder.startArray("accessible");
+
+      for (int set = 0; set < batch.authorizationSets(); set++) {
+        builder.value(batch.canAccess(item, set));
+      }
+
+      builder.endArray();
+
+      if (explained != null) {
+        builder.startArray("explanations");
+
+        for (List<String> authorizations : explained) {
+          explanation(builder, LabelExplanation.explain(label, authorizations));
+        }
+
+        builder.endArray();
+      }
+    }
+
+    return Strings.toString(builder.endObject());
+  }
+
+  private static void explanation(XContentBuilder builder, LabelExplanation explanation)
+      throws IOException {
+    builder.startObject();
+    builder.field("accessible", explanation.isAccessible());
+    builder.field("description", explanation.description());
+
+    if (!explanation.details().isEmpty()) {
+      builder.startArray("details");
+
+      for (LabelExplanation detail : explanation.details()) {
+        explanation(builder, detail);
+      }
+
+      builder.endArray();
+    }
+
+    builder.endObject();
+  }
+
+  private static void sendFailure(RestChannel channel, Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+
+    Exception e =
+        failure instanceof Exception exception ? exception : new RuntimeException(failure);
+
+    try {
+      channel.sendResponse(new RestResponse(channel, e));
+    } catch (IOException inner) {
+      inner.addSuppressed(e);
+      throw new RuntimeException(inner);
+    }
+  }
+}
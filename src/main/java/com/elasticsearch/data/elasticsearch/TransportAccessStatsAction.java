@@ -0,0 +1,61 @@
+package com.elasticsearch.data.elasticsearch;
+
+import com.elasticsearch.data.AccessStats;
+import java.io.IOException;
+import java.util.List;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+/** Fans the {@link AccessStatsRequest} out to the nodes and collects their stats. */
+public class TransportAccessStatsAction
+    extends TransportNodesAction<
+        AccessStatsRequest, AccessStatsResponse, AccessStatsRequest.NodeRequest, NodeAccessStats> {
+  private final AccessStats stats;
+
+  @Inject
+  public TransportAccessStatsAction(
+      ThreadPool threadPool,
+      ClusterService clusterService,
+      TransportService transportService,
+      ActionFilters actionFilters,
+      AccessStats stats) {
+    super(
+        AccessStatsAction.NAME,
+        clusterService,
+        transportService,
+        actionFilters,
+        AccessStatsRequest.NodeRequest::new,
+        threadPool.executor(ThreadPool.Names.MANAGEMENT));
+    this.stats = stats;
+  }
+
+  @Override
+  protected AccessStatsResponse newResponse(
+      AccessStatsRequest request, List<NodeAccessStats> nodes, List<FailedNodeException> failures) {
+    return new AccessStatsResponse(clusterService.getClusterName(), nodes, failures);
+  }
+
+  @Override
+  protected AccessStatsRequest.NodeRequest newNodeRequest(AccessStatsRequest request) {
+    return new AccessStatsRequest.NodeRequest();
+  }
+
+  @Override
+  protected NodeAccessStats newNodeResponse(StreamInput in, DiscoveryNode node)
+      throws IOException {
+    return new NodeAccessStats(in);
+  }
+
+  @Override
+  protected NodeAccessStats nodeOperation(AccessStatsRequest.NodeRequest request, Task task) {
+    return new NodeAccessStats(clusterService.localNode(), stats.snapshot());
+  }
+}
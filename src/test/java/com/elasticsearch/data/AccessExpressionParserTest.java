@@ -0,0 +1,30 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class AccessExpressionParserTest {
+
+  private static Stream<Arguments> disjunctions() {
+    return Stream.of(
+        Arguments.of("BLUE", List.of("BLUE")),
+        Arguments.of("BLUE|GREEN|BLUE", List.of("BLUE", "GREEN")),
+        Arguments.of("\"BL UE\"|RED", List.of("BL UE", "RED")),
+        Arguments.of("(BLUE|GREEN)", List.of("BLUE", "GREEN")),
+        Arguments.of("BLUE&GREEN", null),
+        Arguments.of("BLUE|(GREEN&RED)", null),
+        Arguments.of("(BLUE|GREEN)|RED", null),
+        Arguments.of("", null));
+  }
+
+  @ParameterizedTest
+  @MethodSource("disjunctions")
+  public void findsDisjunctionTokens(String expression, List<String> expected) {
+    assertEquals(expected, AccessExpressionParser.disjunctionTokens(expression));
+  }
+}
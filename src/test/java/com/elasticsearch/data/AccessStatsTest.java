@@ -0,0 +1,65 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AccessStatsTest {
+
+  @Test
+  public void countsVerdictsAndCacheMisses() {
+    AccessStats stats = new AccessStats();
+
+    stats.recordEvaluation(true);
+    stats.recordEvaluation(true);
+    stats.recordEvaluation(false);
+    stats.recordCacheMiss();
+    stats.recordExtractionFailure("field1");
+    stats.recordParseError("BLUE&", "invalid");
+
+    AccessStats.Snapshot snapshot = stats.snapshot();
+
+    assertEquals(3, snapshot.evaluations());
+    assertEquals(2, snapshot.allowed());
+    assertEquals(1, snapshot.denied());
+    assertEquals(2, snapshot.cacheHits());
+    assertEquals(1, snapshot.cacheMisses());
+    assertEquals(1, snapshot.extractionFailures());
+    assertEquals(1, snapshot.parseErrors());
+  }
+
+  @Test
+  public void bucketsSegmentTimes() {
+    AccessStats stats = new AccessStats();
+
+    stats.recordSegment("terms", TimeUnit.MICROSECONDS.toNanos(5));
+    stats.recordSegment("terms", TimeUnit.MICROSECONDS.toNanos(10));
+    stats.recordSegment("terms", TimeUnit.MILLISECONDS.toNanos(50));
+    stats.recordSegment("terms", TimeUnit.SECONDS.toNanos(5));
+
+    AccessStats.Snapshot snapshot = stats.snapshot();
+
+    assertEquals(4, snapshot.segments());
+    assertArrayEquals(new long[] {1, 1, 0, 0, 1, 0, 1}, snapshot.segmentHistogram());
+  }
+
+  @Test
+  public void countsSegmentsByStrategy() {
+    AccessStats stats = new AccessStats();
+
+    stats.recordSegment("terms", TimeUnit.MICROSECONDS.toNanos(5));
+    stats.recordSegment("label_summary", TimeUnit.MICROSECONDS.toNanos(5));
+    stats.recordSegment("block");
+    stats.recordSegment("block");
+
+    AccessStats.Snapshot snapshot = stats.snapshot();
+
+    // segments evaluated while their documents are iterated are not timed
+    assertEquals(2, snapshot.segments());
+    assertEquals(
+        Map.of("block", 2L, "label_summary", 1L, "terms", 1L), snapshot.strategySegments());
+  }
+}
@@ -0,0 +1,83 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class BinaryAccessExpressionTest {
+  private static final List<String> AUTHORIZATIONS = List.of("BLUE", "GREEN", "IFSR, SDGT");
+
+  private static Stream<Arguments> scenarios() {
+    return Stream.of(
+        Arguments.of(List.of("BLUE"), true),
+        Arguments.of(List.of("PINK"), false),
+        Arguments.of(List.of("BLUE&GREEN"), true),
+        Arguments.of(List.of("BLUE&PINK"), false),
+        Arguments.of(List.of("PINK|GREEN"), true),
+        Arguments.of(List.of("(RED&GREEN)|(BLUE&PINK)"), false),
+        Arguments.of(List.of("(RED|GREEN)&(BLUE|PINK)"), true),
+        Arguments.of(List.of("\"IFSR, SDGT\""), true),
+        Arguments.of(List.of("\"BL UE\"|RED"), false),
+        Arguments.of(List.of(""), true),
+        Arguments.of(List.of("PINK", "RED"), false),
+        Arguments.of(List.of("PINK", "BLUE&GREEN"), true));
+  }
+
+  @ParameterizedTest
+  @MethodSource("scenarios")
+  public void evaluatesLikeTheStringExpression(List<String> labels, boolean expected) {
+    byte[] bytes = BinaryAccessExpression.encodeAny(labels);
+    BinaryAccessExpression.Evaluator evaluator =
+        new BinaryAccessExpression.Evaluator(AUTHORIZATIONS);
+
+    assertEquals(expected, evaluator.canAccess(bytes));
+  }
+
+  @ParameterizedTest
+  @MethodSource("scenarios")
+  public void combinesEncodedExpressions(List<String> labels) {
+    List<AccessExpressionParser.Node> parsed = new ArrayList<>();
+    List<byte[]> encoded = new ArrayList<>();
+
+    for (String label : labels) {
+      parsed.add(AccessExpressionParser.parse(label));
+      encoded.add(BinaryAccessExpression.encode(label));
+    }
+
+    assertArrayEquals(
+        BinaryAccessExpression.encodeAnyParsed(parsed),
+        BinaryAccessExpression.encodeAnyEncoded(encoded));
+  }
+
+  @ParameterizedTest
+  @MethodSource("scenarios")
+  public void decodesWhatWasEncoded(List<String> labels) {
+    byte[] bytes = BinaryAccessExpression.encodeAny(labels);
+
+    assertArrayEquals(
+        bytes, BinaryAccessExpression.encode(BinaryAccessExpression.decode(bytes, 0)));
+  }
+
+  @Test
+  public void evaluatesAtOffset() {
+    byte[] bytes = BinaryAccessExpression.encode("BLUE&GREEN");
+    byte[] padded = new byte[bytes.length + 3];
+    System.arraycopy(bytes, 0, padded, 3, bytes.length);
+
+    assertEquals(true, new BinaryAccessExpression.Evaluator(AUTHORIZATIONS).canAccess(padded, 3));
+  }
+
+  @Test
+  public void rejectsInvalidExpressions() {
+    assertThrows(IllegalArgumentException.class, () -> BinaryAccessExpression.encode("BLUE&|RED"));
+    assertThrows(IllegalArgumentException.class, () -> BinaryAccessExpression.encode("BLUE GREEN"));
+  }
+}
@@ -0,0 +1,178 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.Authorizations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Compares the verdicts of {@link BitmaskAccessEvaluator} with the accumulo-access library. */
+public class BitmaskAccessEvaluatorTest {
+  private static final String[] TOKENS = {
+    "BLUE", "GREEN", "PINK", "RED", "a_b", "x-y", "p.q", "s:t", "u/v", "9", "IFSR, SDGT", "q\"t",
+    "b\\s"
+  };
+  private static final String OPERAND_CHARS = "ABab_-.:/&|()\"\\ #,";
+
+  @ParameterizedTest
+  @ValueSource(longs = {1, 2, 3, 4, 5})
+  public void matchesAccessEvaluator(long seed) {
+    Random random = new Random(seed);
+
+    for (int i = 0; i < 2000; i++) {
+      List<String> authorizations = new ArrayList<>();
+
+      for (String token : TOKENS) {
+        if (random.nextBoolean()) {
+          authorizations.add(token);
+        }
+      }
+
+      String expression = expression(random, 3);
+
+      if (random.nextInt(4) == 0) {
+        expression = mutate(random, expression);
+      }
+
+      assertEquals(
+          expected(authorizations, expression),
+          actual(authorizations, expression),
+          String.format("authorizations: %s, expression: %s", authorizations, expression));
+    }
+  }
+
+  @Test
+  public void manyAuthorizations() {
+    List<String> authorizations = new ArrayList<>();
+
+    for (int i = 0; i < 200; i += 2) {
+      authorizations.add("T" + i);
+    }
+
+    for (String expression :
+        List.of("T0&T198", "T0&T199", "T1|T199", "T1|(T64&T128)", "(T3|T130)&T190", "")) {
+      assertEquals(expected(authorizations, expression), actual(authorizations, expression));
+    }
+  }
+
+  @Test
+  public void programsAreCompiledOncePerExpression() {
+    List<String> authorizations = List.of("BLUE", "RED");
+    BitmaskAccessEvaluator evaluator =
+        new BitmaskAccessEvaluator(AuthorizationDictionary.of(authorizations), authorizations, 2);
+
+    BitmaskAccessEvaluator.Program blue = evaluator.program("BLUE|PINK");
+    assertSame(blue, evaluator.program("BLUE|PINK"));
+
+    evaluator.program("RED");
+    evaluator.program("BLUE&RED");
+
+    // the least recently used program is evicted once the cache is full
+    assertNotSame(blue, evaluator.program("BLUE|PINK"));
+  }
+
+  @Test
+  public void cachedProgramsMatchAccessEvaluator() {
+    Random random = new Random(6);
+    List<String> authorizations = List.of("BLUE", "GREEN", "a_b", "9", "IFSR, SDGT");
+    BitmaskAccessEvaluator evaluator =
+        new BitmaskAccessEvaluator(AuthorizationDictionary.of(authorizations), authorizations, 16);
+    List<String> expressions = new ArrayList<>();
+
+    for (int i = 0; i < 64; i++) {
+      expressions.add(expression(random, 2));
+    }
+
+    for (int i = 0; i < 2000; i++) {
+      String expression = expressions.get(random.nextInt(expressions.size()));
+
+      assertEquals(
+          expected(authorizations, expression),
+          String.valueOf(evaluator.canAccess(expression)),
+          expression);
+    }
+  }
+
+  private static String expected(List<String> authorizations, String expression) {
+    try {
+      AccessEvaluator evaluator = AccessEvaluator.of(Authorizations.of(Set.copyOf(authorizations)));
+      return String.valueOf(evaluator.canAccess(expression));
+    } catch (IllegalArgumentException e) {
+      return "invalid";
+    }
+  }
+
+  private static String actual(List<String> authorizations, String expression) {
+    try {
+      return String.valueOf(new BitmaskAccessEvaluator(authorizations).canAccess(expression));
+    } catch (IllegalArgumentException e) {
+      return "invalid";
+    }
+  }
+
+  /** Generates a valid expression of at most the given depth. */
+  private static String expression(Random random, int depth) {
+    int operands = 1 + random.nextInt(4);
+    String operator = random.nextBoolean() ? "&" : "|";
+    StringBuilder expression = new StringBuilder();
+
+    for (int i = 0; i < operands; i++) {
+      if (i > 0) {
+        expression.append(operator);
+      }
+
+      if (depth > 0 && random.nextInt(3) == 0) {
+        expression.append('(').append(expression(random, depth - 1)).append(')');
+      } else {
+        expression.append(token(random));
+      }
+    }
+
+    return expression.toString();
+  }
+
+  private static String token(Random random) {
+    String token = TOKENS[random.nextInt(TOKENS.length)];
+    boolean needsQuotes =
+        !token.chars().allMatch(c -> AccessExpressionParser.isTokenChar((char) c));
+
+    if (needsQuotes || random.nextInt(5) == 0) {
+      return '"' + token.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    return token;
+  }
+
+  /** Inserts, deletes or replaces a character, which usually makes the expression invalid. */
+  private static String mutate(Random random, String expression) {
+    StringBuilder mutated = new StringBuilder(expression);
+    int position = random.nextInt(expression.length() + 1);
+    char c = OPERAND_CHARS.charAt(random.nextInt(OPERAND_CHARS.length()));
+
+    switch (random.nextInt(3)) {
+      case 0:
+        mutated.insert(position, c);
+        break;
+      case 1:
+        if (position < mutated.length()) {
+          mutated.deleteCharAt(position);
+        }
+        break;
+      default:
+        if (position < mutated.length()) {
+          mutated.setCharAt(position, c);
+        }
+        break;
+    }
+
+    return mutated.toString();
+  }
+}
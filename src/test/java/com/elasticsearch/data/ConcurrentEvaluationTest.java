@@ -0,0 +1,85 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Evaluates the same documents from many threads, the way segments are searched concurrently, each
+ * thread with its own evaluator copy and extractor.
+ */
+public class ConcurrentEvaluationTest {
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 50;
+  private static final List<String> AUTHORIZATIONS = List.of("BLUE", "GREEN", "RED");
+  private static final String[] COLORS = {"BLUE", "GREEN", "PINK", "RED", "BL UE", "GREEN, PINK"};
+
+  @ParameterizedTest
+  @EnumSource(LabelEvaluator.Type.class)
+  public void concurrentSegmentsAgreeWithSingleThread(LabelEvaluator.Type type) throws Exception {
+    List<Map<String, Object>> documents = new ArrayList<>();
+
+    for (int i = 0; i < 500; i++) {
+      String first = COLORS[i % COLORS.length];
+      String second = COLORS[(i / COLORS.length) % COLORS.length];
+      documents.add(Map.of("field1", List.of(first, second)));
+    }
+
+    LabelPath labelPath = LabelPath.compile("field1", LabelExtractor.Policy.SPLIT_AND);
+    AccessStats stats = new AccessStats();
+    LabelEvaluator evaluator = new LabelEvaluator(AUTHORIZATIONS, type, 16, stats);
+    boolean[] expected = verdicts(documents, labelPath, new LabelEvaluator(AUTHORIZATIONS, 0));
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      List<Future<boolean[]>> results = new ArrayList<>();
+
+      for (int i = 0; i < THREADS * ROUNDS; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return verdicts(documents, labelPath, evaluator.withEmptyCache());
+                }));
+      }
+
+      start.countDown();
+
+      for (Future<boolean[]> result : results) {
+        boolean[] actual = result.get(1, TimeUnit.MINUTES);
+
+        for (int i = 0; i < expected.length; i++) {
+          assertEquals(expected[i], actual[i], "document " + i);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals((long) THREADS * ROUNDS * documents.size(), stats.snapshot().evaluations());
+  }
+
+  private static boolean[] verdicts(
+      List<Map<String, Object>> documents, LabelPath labelPath, LabelEvaluator evaluator) {
+    LabelPath.Extractor extractor = labelPath.extractor();
+    boolean[] verdicts = new boolean[documents.size()];
+
+    for (int i = 0; i < verdicts.length; i++) {
+      CharSequence label = extractor.extractLabel(documents.get(i));
+      verdicts[i] = label != null && evaluator.canAccess(label.toString());
+    }
+
+    return verdicts;
+  }
+}
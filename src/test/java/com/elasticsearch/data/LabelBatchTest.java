@@ -0,0 +1,92 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.accumulo.access.AccessExpression;
+import org.junit.jupiter.api.Test;
+
+public class LabelBatchTest {
+
+  @Test
+  public void evaluatesDistinctLabelsOncePerAuthorizationSet() throws Exception {
+    AccessStats stats = new AccessStats();
+    List<LabelEvaluator> evaluators =
+        List.of(
+            new LabelEvaluator(List.of("BLUE"), LabelEvaluator.Type.ACCUMULO, 0, stats),
+            new LabelEvaluator(List.of("BLUE", "RED"), LabelEvaluator.Type.ACCUMULO, 0, stats));
+    LabelBatch batch =
+        new LabelBatch(Arrays.asList("BLUE", "BLUE&RED", null, "BLUE", "(BLUE"), evaluators);
+
+    batch.evaluate(Runnable::run, 2).get();
+
+    assertEquals(3, batch.distinctLabels());
+    assertEquals(6, stats.snapshot().evaluations());
+    assertEquals(true, batch.canAccess(0, 0));
+    assertEquals(false, batch.canAccess(1, 0));
+    assertEquals(true, batch.canAccess(1, 1));
+    assertEquals(false, batch.canAccess(2, 1));
+    assertEquals(true, batch.canAccess(3, 0));
+    // invalid labels are never accessible
+    assertEquals(false, batch.canAccess(4, 1));
+  }
+
+  @Test
+  public void invalidLabelsHaveTheirParseError() throws Exception {
+    List<LabelEvaluator> evaluators =
+        List.of(new LabelEvaluator(List.of("BLUE"), 0), new LabelEvaluator(List.of("RED"), 0));
+    LabelBatch batch =
+        new LabelBatch(Arrays.asList("BLUE", "(BLUE", null, "GREEN", "BLUE&", "(BLUE"), evaluators)
+            .evaluate(Runnable::run, 3)
+            .get();
+
+    assertNull(batch.error(0));
+    assertNull(batch.error(2));
+    // a valid label nobody can access is not an error
+    assertNull(batch.error(3));
+
+    for (int item : new int[] {1, 4, 5}) {
+      assertThrows(IllegalArgumentException.class, () -> AccessExpression.of(batch.label(item)));
+      assertNotNull(batch.error(item), "item " + item);
+    }
+
+    assertEquals(batch.error(1), batch.error(5));
+  }
+
+  @Test
+  public void parallelSlicesAgreeWithSingleSlice() throws Exception {
+    List<String> labels = new ArrayList<>();
+
+    for (int i = 0; i < 5000; i++) {
+      labels.add("L" + (i % 700) + "|L" + (i % 13));
+    }
+
+    List<LabelEvaluator> evaluators =
+        List.of(
+            new LabelEvaluator(List.of("L1", "L2", "L3"), 0),
+            new LabelEvaluator(List.of("L10", "L500"), 0));
+    LabelBatch expected = new LabelBatch(labels, evaluators).evaluate(Runnable::run, 1).get();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      LabelBatch actual =
+          new LabelBatch(labels, evaluators).evaluate(executor, 8).get(1, TimeUnit.MINUTES);
+
+      for (int item = 0; item < labels.size(); item++) {
+        for (int set = 0; set < evaluators.size(); set++) {
+          assertEquals(expected.canAccess(item, set), actual.canAccess(item, set), "item " + item);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class LabelExplanationTest {
+  private static final List<String> AUTHORIZATIONS = List.of("BLUE", "GREEN", "IFSR, SDGT");
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "BLUE",
+        "PINK",
+        "BLUE&PINK",
+        "PINK|GREEN",
+        "(RED&GREEN)|(BLUE&PINK)",
+        "(RED|GREEN)&(BLUE|PINK)",
+        "\"IFSR, SDGT\"",
+        "",
+        "BLUE&|RED"
+      })
+  public void agreesWithTheEvaluator(String label) {
+    LabelEvaluator evaluator = new LabelEvaluator(AUTHORIZATIONS, 0);
+
+    assertEquals(
+        evaluator.canAccess(label), LabelExplanation.explain(label, AUTHORIZATIONS).isAccessible());
+  }
+
+  @Test
+  public void explainsEveryToken() {
+    LabelExplanation explanation = LabelExplanation.explain("(RED|GREEN)&PINK", AUTHORIZATIONS);
+
+    assertEquals(
+        "label [(RED|GREEN)&PINK] is not accessible\n"
+            + "  all of: false\n"
+            + "    token [PINK] is not an authorization\n"
+            + "    any of: true\n"
+            + "      token [RED] is not an authorization\n"
+            + "      token [GREEN] is an authorization\n",
+        explanation.toString());
+  }
+
+  @Test
+  public void explainsDecodedLabels() {
+    byte[] bytes = BinaryAccessExpression.encode("(RED|GREEN)&PINK");
+    LabelExplanation explanation =
+        LabelExplanation.explain(
+            "label", BinaryAccessExpression.decode(bytes, 0), List.of("GREEN", "PINK"));
+
+    assertEquals(true, explanation.isAccessible());
+    assertEquals("label is accessible", explanation.description());
+  }
+}
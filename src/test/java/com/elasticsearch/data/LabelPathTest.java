@@ -0,0 +1,80 @@
+package com.elasticsearch.data;
+
+import static com.elasticsearch.data.TestUtil.readFileAsMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class LabelPathTest {
+  private String testSourcePath = "src/test/resources/";
+
+  private static Stream<Arguments> scenarios() {
+    return Stream.of(
+        Arguments.of("field2", LabelExtractor.Policy.NONE, "BLUE|GREEN"),
+        Arguments.of("field3", LabelExtractor.Policy.NONE, "BLUE"),
+        Arguments.of("field5.field54.field543.field5431", LabelExtractor.Policy.NONE, "BLUE"),
+        Arguments.of("field8.field86.field863", LabelExtractor.Policy.NONE, "123.456|789.0"),
+        Arguments.of("field15", LabelExtractor.Policy.NONE, null),
+        Arguments.of("field17", LabelExtractor.Policy.SPLIT_OR, "IFSR|SDGT"),
+        Arguments.of("field17", LabelExtractor.Policy.SPLIT_AND, "IFSR&SDGT"),
+        Arguments.of("field17", LabelExtractor.Policy.RAW, "IFSR, SDGT"),
+        Arguments.of("missing", LabelExtractor.Policy.NONE, null));
+  }
+
+  @ParameterizedTest
+  @MethodSource("scenarios")
+  public void extractorIsReusableAcrossDocuments(
+      String field, LabelExtractor.Policy policy, String expected) throws IOException {
+    LabelPath.Extractor extractor = LabelPath.compile(field, policy).extractor();
+
+    for (String filename : List.of("sanction1.json", "test_data1.json", "sanction2.json")) {
+      Map<String, Object> data = readFileAsMap(testSourcePath + filename);
+      Optional<String> actual = extractor.extract(data);
+
+      assertEquals(LabelExtractor.extract(data, field, policy), actual);
+
+      if ("test_data1.json".equals(filename)) {
+        assertEquals(expected, actual.orElse(null));
+      }
+    }
+  }
+
+  @Test
+  public void splitsLikeStringSplit() {
+    LabelPath.Extractor extractor =
+        LabelPath.compile("label", LabelExtractor.Policy.SPLIT_OR).extractor();
+
+    for (String label : List.of("A,,B,", ",A", ",", ", ,", "A, A ,B", "", "BL UE,GREEN")) {
+      CharSequence actual = extractor.extractLabel(Map.of("label", label));
+      assertEquals(
+          LabelExtractor.sanitizeLabel(label, LabelExtractor.Policy.SPLIT_OR), actual.toString());
+    }
+  }
+
+  @Test
+  public void deduplicatesNestedLabels() {
+    Map<String, Object> data =
+        Map.of(
+            "docs",
+            List.of(
+                Map.of("label", List.of("A", "B")),
+                Map.of("label", "B"),
+                Map.of("label", List.of("A", "B")),
+                Map.of("other", "C")));
+
+    LabelPath.Extractor extractor =
+        LabelPath.compile("docs.label", LabelExtractor.Policy.NONE).extractor();
+
+    assertEquals("A|B|B", extractor.extractLabel(data).toString());
+    assertNull(extractor.extractLabel(Map.of("docs", List.of())));
+  }
+}
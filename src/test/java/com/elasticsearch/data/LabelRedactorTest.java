@@ -0,0 +1,69 @@
+package com.elasticsearch.data;
+
+import static com.elasticsearch.data.TestUtil.readFileAsMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class LabelRedactorTest {
+
+  @Test
+  public void removesInaccessibleArrayElements() throws IOException {
+    Map<String, Object> document = readFileAsMap("src/test/resources/sanction1.json");
+    LabelRedactor redactor =
+        new LabelRedactor("identity_documents", "document_type", LabelExtractor.Policy.NONE);
+    AccessStats stats = new AccessStats();
+    LabelEvaluator evaluator =
+        new LabelEvaluator(List.of("Passport"), LabelEvaluator.Type.ACCUMULO, 16, stats);
+
+    assertEquals(2, redactor.redact(document, evaluator));
+
+    List<?> identityDocuments = (List<?>) document.get("identity_documents");
+    assertEquals(2, identityDocuments.size());
+
+    for (Object identityDocument : identityDocuments) {
+      assertEquals("Passport", ((Map<?, ?>) identityDocument).get("document_type"));
+    }
+
+    // the two distinct labels are evaluated once each
+    assertEquals(4, stats.snapshot().evaluations());
+    assertEquals(2, stats.snapshot().cacheMisses());
+  }
+
+  @Test
+  public void redactsNestedPathsAndElementsWithoutLabel() {
+    Map<String, Object> visible = new HashMap<>(Map.of("label", "BLUE", "value", 1));
+    Map<String, Object> hidden = new HashMap<>(Map.of("label", "BLUE&RED", "value", 2));
+    Map<String, Object> unlabeled = new HashMap<>(Map.of("value", 3));
+    Map<String, Object> single = new HashMap<>(Map.of("label", "RED"));
+    Map<String, Object> outer = new HashMap<>();
+    outer.put("items", new ArrayList<>(List.of(visible, hidden, unlabeled)));
+    outer.put("single", single);
+    Map<String, Object> document = new HashMap<>();
+    document.put("outer", new ArrayList<>(List.of(outer)));
+
+    LabelEvaluator evaluator = new LabelEvaluator(List.of("BLUE"), 0);
+
+    assertEquals(
+        2,
+        new LabelRedactor("outer.items", "label", LabelExtractor.Policy.NONE)
+            .redact(document, evaluator));
+    assertEquals(List.of(visible), outer.get("items"));
+
+    assertEquals(
+        1,
+        new LabelRedactor("outer.single", "label", LabelExtractor.Policy.NONE)
+            .redact(document, evaluator));
+    assertEquals(false, outer.containsKey("single"));
+
+    assertEquals(
+        0,
+        new LabelRedactor("missing.items", "label", LabelExtractor.Policy.NONE)
+            .redact(document, evaluator));
+  }
+}
@@ -0,0 +1,81 @@
+package com.elasticsearch.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+public class LabelVerdictCacheTest {
+
+  @Test
+  public void repeatedLabelsAreEvaluatedOnce() {
+    List<String> evaluated = new ArrayList<>();
+    Predicate<String> evaluator = recording(evaluated);
+    LabelVerdictCache cache = new LabelVerdictCache(4);
+
+    assertTrue(cache.canAccess("BLUE", evaluator));
+    assertFalse(cache.canAccess("RED", evaluator));
+    assertTrue(cache.canAccess("BLUE", evaluator));
+    assertFalse(cache.canAccess("RED", evaluator));
+
+    assertEquals(List.of("BLUE", "RED"), evaluated);
+    assertEquals(2, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedLabelIsEvicted() {
+    List<String> evaluated = new ArrayList<>();
+    Predicate<String> evaluator = recording(evaluated);
+    LabelVerdictCache cache = new LabelVerdictCache(2);
+
+    cache.canAccess("BLUE", evaluator);
+    cache.canAccess("RED", evaluator);
+    // a hit makes BLUE the most recently used, so RED is evicted next
+    cache.canAccess("BLUE", evaluator);
+    cache.canAccess("GREEN", evaluator);
+    assertEquals(2, cache.size());
+
+    evaluated.clear();
+    cache.canAccess("BLUE", evaluator);
+    cache.canAccess("GREEN", evaluator);
+    cache.canAccess("RED", evaluator);
+
+    assertEquals(List.of("RED"), evaluated);
+  }
+
+  @Test
+  public void zeroSizeDisablesCaching() {
+    List<String> evaluated = new ArrayList<>();
+    Predicate<String> evaluator = recording(evaluated);
+    LabelVerdictCache cache = new LabelVerdictCache(0);
+
+    cache.canAccess("BLUE", evaluator);
+    cache.canAccess("BLUE", evaluator);
+
+    assertEquals(List.of("BLUE", "BLUE"), evaluated);
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.hits());
+    assertEquals(2, cache.misses());
+  }
+
+  @Test
+  public void negativeSizeIsRejected() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> new LabelVerdictCache(-1));
+    assertEquals("Verdict cache size must be non-negative but was [-1]", e.getMessage());
+  }
+
+  private static Predicate<String> recording(List<String> evaluated) {
+    return label -> {
+      evaluated.add(label);
+      return label.equals("BLUE") || label.equals("GREEN");
+    };
+  }
+}
@@ -0,0 +1,327 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.elasticsearch.data.AccessStats;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.elasticsearch.index.analysis.AnalyzerScope;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class ABACAccessLeafFactoryTest {
+
+  @Test
+  public void invalidAuthorizationsFailTheQuery() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> newLeafFactory(Map.of("labelField", "label", "authorizations", "BLUE,,RED")));
+    assertEquals(
+        "Parameter [authorizations] has invalid authorizations [BLUE,,RED]: Empty authorization",
+        e.getMessage());
+  }
+
+  @Test
+  public void negativeVerdictCacheSizeIsRejected() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                newLeafFactory(
+                    Map.of(
+                        "labelField", "label", "authorizations", "BLUE", "verdictCacheSize", -1)));
+    assertEquals("Parameter [verdictCacheSize] must be non-negative but was [-1]", e.getMessage());
+  }
+
+  @Test
+  public void policiesMustMatchTheLabelFields() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                newLeafFactory(
+                    Map.of(
+                        "labelField",
+                        List.of("a", "b", "c"),
+                        "authorizations",
+                        "BLUE",
+                        "labelExtractionPolicy",
+                        List.of("NONE", "SPLIT_OR"))));
+    assertEquals(
+        "Parameter [labelExtractionPolicy] must be a single policy or one policy per label field, "
+            + "but has [2] policies for [3] label fields",
+        e.getMessage());
+  }
+
+  @Test
+  public void combinationStopsAtTheDecidingField() {
+    // an invalid label in the second field is only parsed when the first field does not decide
+    List<Map<String, Object>> sources =
+        List.of(Map.of("a", "RED", "b", "BLUE&"), Map.of("a", "BLUE", "b", "BLUE&"));
+
+    for (LabelCombination combination : LabelCombination.values()) {
+      AccessStats stats = new AccessStats();
+      ABACAccessLeafFactory factory =
+          new ABACAccessLeafFactory(
+              Map.of(
+                  "labelField",
+                  List.of("a", "b"),
+                  "authorizations",
+                  "BLUE",
+                  "labelCombination",
+                  combination.name()),
+              null,
+              stats,
+              new AuthorizationProfiles(stats));
+
+      List<Boolean> verdicts = verdicts(factory, TestDocReader.ofSources(sources));
+
+      if (combination == LabelCombination.AND) {
+        assertEquals(List.of(false, false), verdicts);
+      } else {
+        assertEquals(List.of(false, true), verdicts);
+      }
+
+      assertEquals(1, stats.snapshot().parseErrors(), combination.name());
+      assertEquals(3, stats.snapshot().evaluations(), combination.name());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(
+      value = LabelSource.class,
+      names = {"SOURCE", "PARTIAL_SOURCE"})
+  public void labelFieldsCombineTheirSingleFieldVerdicts(LabelSource labelSource) {
+    Random random = new Random(42);
+    List<String> labels = List.of("BLUE", "RED", "BLUE, RED", "GREEN, BLUE", "BLUE&");
+    List<Map<String, Object>> sources = new ArrayList<>();
+
+    for (int i = 0; i < 200; i++) {
+      Map<String, Object> nested = new HashMap<>();
+      nested.put("b", List.of(labels.get(random.nextInt(5)), labels.get(random.nextInt(5))));
+
+      if (random.nextBoolean()) {
+        nested.put("c", labels.get(random.nextInt(5)));
+      }
+
+      sources.add(Map.of("a", labels.get(random.nextInt(5)), "n", nested));
+    }
+
+    List<String> fields = List.of("a", "n.b", "n.c");
+    List<String> policies = List.of("NONE", "SPLIT_OR", "SPLIT_AND");
+    List<List<Boolean>> singleFieldVerdicts = new ArrayList<>();
+
+    for (int i = 0; i < fields.size(); i++) {
+      singleFieldVerdicts.add(
+          verdicts(
+              Map.of(
+                  "labelField",
+                  fields.get(i),
+                  "authorizations",
+                  "BLUE,GREEN",
+                  "labelExtractionPolicy",
+                  policies.get(i),
+                  "labelSource",
+                  labelSource.name()),
+              Map.of(),
+              TestDocReader.ofSources(sources)));
+    }
+
+    for (LabelCombination combination : LabelCombination.values()) {
+      List<Boolean> verdicts =
+          verdicts(
+              Map.of(
+                  "labelField",
+                  fields,
+                  "authorizations",
+                  "BLUE,GREEN",
+                  "labelExtractionPolicy",
+                  policies,
+                  "labelSource",
+                  labelSource.name(),
+                  "labelCombination",
+                  combination.name()),
+              Map.of(),
+              TestDocReader.ofSources(sources));
+
+      for (int doc = 0; doc < sources.size(); doc++) {
+        boolean expected = combination == LabelCombination.AND;
+
+        for (List<Boolean> fieldVerdicts : singleFieldVerdicts) {
+          expected =
+              combination == LabelCombination.AND
+                  ? expected && fieldVerdicts.get(doc)
+                  : expected || fieldVerdicts.get(doc);
+        }
+
+        assertEquals(expected, verdicts.get(doc), combination + " of document " + doc);
+      }
+    }
+  }
+
+  @Test
+  public void docValuesAreOrJoined() {
+    // the sources disagree with the doc values, so the verdicts show which of them was read
+    TestDocReader reader =
+        new TestDocReader(
+            List.of(Map.of("label", "PINK"), Map.of("label", "PINK")),
+            List.of(
+                Map.of("label", List.of("BLUE", "RED, GREEN")), Map.of("label", List.of("RED"))));
+
+    assertEquals(
+        List.of(true, false),
+        verdicts(
+            docValuesParams("label", "GREEN", "SPLIT_OR"),
+            Map.of("label", new KeywordFieldMapper.KeywordFieldType("label")),
+            reader));
+  }
+
+  @Test
+  public void documentsWithoutDocValuesFallBackToSource() {
+    TestDocReader reader =
+        new TestDocReader(
+            List.of(Map.of("label", "BLUE"), Map.of("label", "RED")),
+            List.of(Map.of(), Map.of("label", List.of("BLUE"))));
+
+    assertEquals(
+        List.of(true, true),
+        verdicts(
+            docValuesParams("label", "BLUE", "NONE"),
+            Map.of("label", new KeywordFieldMapper.KeywordFieldType("label")),
+            reader));
+  }
+
+  @Test
+  public void docValuesGiveTheSameVerdictsAsSource() {
+    Map<String, MappedFieldType> fieldTypes =
+        Map.of(
+            "a.b",
+            new KeywordFieldMapper.KeywordFieldType("a.b"),
+            "normalized",
+            new KeywordFieldMapper.KeywordFieldType(
+                "normalized",
+                new NamedAnalyzer("lowercase", AnalyzerScope.INDEX, new KeywordAnalyzer())));
+    // the policy is not applied to nested values, and the normalizer lowercased the doc values
+    List<Map<String, Object>> sources =
+        List.of(Map.of("a", Map.of("b", "BLUE, RED"), "normalized", "BLUE"));
+    List<Map<String, List<String>>> docValues =
+        List.of(Map.of("a.b", List.of("BLUE, RED"), "normalized", List.of("blue")));
+
+    for (String labelField : List.of("a.b", "normalized")) {
+      Map<String, Object> params = docValuesParams(labelField, "BLUE,blue", "SPLIT_OR");
+      List<Boolean> fromDocValues =
+          verdicts(params, fieldTypes, new TestDocReader(sources, docValues));
+      params.put("labelSource", "SOURCE");
+      List<Boolean> fromSource = verdicts(params, fieldTypes, TestDocReader.ofSources(sources));
+
+      assertEquals(fromSource, fromDocValues, labelField);
+    }
+  }
+
+  @Test
+  public void concurrentScriptsEvaluateEveryDistinctLabelOnce() throws Exception {
+    List<Map<String, Object>> sources = new ArrayList<>();
+
+    for (int i = 0; i < 100; i++) {
+      sources.add(Map.of("label", List.of("BLUE", "RED", "BLUE|RED", "BLUE&").get(i % 4)));
+    }
+
+    AccessStats stats = new AccessStats();
+    ABACAccessLeafFactory factory =
+        new ABACAccessLeafFactory(
+            Map.of("labelField", "label", "authorizations", "BLUE"),
+            null,
+            stats,
+            new AuthorizationProfiles(stats));
+    List<Boolean> expected = verdicts(factory, TestDocReader.ofSources(sources));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      // the scripts of segments searched concurrently
+      List<Future<List<Boolean>>> results = new ArrayList<>();
+
+      for (int i = 0; i < 16; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return verdicts(factory, TestDocReader.ofSources(sources));
+                }));
+      }
+
+      start.countDown();
+
+      for (Future<List<Boolean>> result : results) {
+        assertEquals(expected, result.get(1, TimeUnit.MINUTES));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // the scripts share their verdicts, so each label is evaluated once per query
+    assertEquals(4, stats.snapshot().cacheMisses());
+    assertEquals(1, stats.snapshot().parseErrors());
+    assertEquals(17 * sources.size(), stats.snapshot().evaluations());
+  }
+
+  private static Map<String, Object> docValuesParams(
+      String labelField, String authorizations, String policy) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("labelField", labelField);
+    params.put("authorizations", authorizations);
+    params.put("labelExtractionPolicy", policy);
+    params.put("labelSource", "DOC_VALUES");
+    return params;
+  }
+
+  /** Runs the script of the params over every document of the reader. */
+  static List<Boolean> verdicts(
+      Map<String, Object> params, Map<String, MappedFieldType> fieldTypes, TestDocReader reader) {
+    SearchLookup lookup =
+        new SearchLookup(
+            fieldTypes::get,
+            (fieldType, searchLookup, operation) -> {
+              throw new UnsupportedOperationException();
+            },
+            null);
+    AccessStats stats = new AccessStats();
+    return verdicts(
+        new ABACAccessLeafFactory(params, lookup, stats, new AuthorizationProfiles(stats)), reader);
+  }
+
+  private static List<Boolean> verdicts(ABACAccessLeafFactory factory, TestDocReader reader) {
+    FilterScript script = factory.newInstance(reader);
+    List<Boolean> verdicts = new ArrayList<>();
+
+    for (int doc = 0; doc < reader.size(); doc++) {
+      script.setDocument(doc);
+      verdicts.add(script.execute());
+    }
+
+    return verdicts;
+  }
+
+  private static ABACAccessLeafFactory newLeafFactory(Map<String, Object> params) {
+    AccessStats stats = new AccessStats();
+    return new ABACAccessLeafFactory(params, null, stats, new AuthorizationProfiles(stats));
+  }
+}
@@ -0,0 +1,466 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.elasticsearch.data.AccessProfile;
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelExtractor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+public class AccumuloAccessQueryTest {
+
+  @Test
+  public void evaluatesEveryDistinctLabelTermOnce() throws IOException {
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+        writer.addDocument(document("BLUE"));
+        writer.addDocument(document("BLUE"));
+        writer.addDocument(document("RED, GREEN"));
+        // any accessible value of a multi-valued label grants access
+        writer.addDocument(document("RED", "BLUE"));
+        writer.addDocument(document("RED", "PINK"));
+        writer.addDocument(document("BLUE&"));
+        writer.addDocument(document());
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        AccessStats stats = new AccessStats();
+        Query query =
+            new AccumuloAccessQuery(
+                "label", List.of("GREEN", "BLUE"), LabelExtractor.Policy.SPLIT_OR, 16, null, stats);
+
+        assertEquals(Set.of(0, 1, 2, 3), matchingDocs(searcher, query));
+        // BLUE, BLUE&, PINK, RED and "RED, GREEN", whatever the number of documents holding them
+        assertEquals(5, stats.snapshot().cacheMisses());
+        assertEquals(1, stats.snapshot().parseErrors());
+      }
+    }
+  }
+
+  @Test
+  public void equalAuthorizationSetsMakeEqualQueries() {
+    AccessStats stats = new AccessStats();
+    assertEquals(cachedQuery(null, stats, "A", "B"), cachedQuery(null, stats, "B", "A", "B"));
+  }
+
+  @Test
+  public void concurrentSegmentsEvaluateEveryDistinctLabelOnce() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer =
+          new IndexWriter(
+              directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+        for (int i = 0; i < 8; i++) {
+          addSegment(writer, "BLUE", "RED", "RED, GREEN", "BLUE&", null);
+        }
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        // one slice per segment, so that every segment is searched by its own task
+        IndexSearcher searcher =
+            new IndexSearcher(reader, executor) {
+              @Override
+              protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, 1, 1);
+              }
+            };
+        searcher.setQueryCache(null);
+        AccessStats stats = new AccessStats();
+        Query query =
+            new AccumuloAccessQuery(
+                "label", List.of("GREEN", "BLUE"), LabelExtractor.Policy.SPLIT_OR, 16, null, stats);
+
+        assertEquals(8, searcher.getSlices().length);
+        assertEquals(16, searcher.count(query));
+        // the segments share their verdicts, so each label is evaluated once per query
+        assertEquals(4, stats.snapshot().cacheMisses());
+        assertEquals(1, stats.snapshot().parseErrors());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrentSegmentsRecordCompleteProfiles() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    int segments = 16;
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer =
+          new IndexWriter(
+              directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+        // segment i holds i % 4 + 2 distinct labels, some of them on several documents
+        for (int i = 0; i < segments; i++) {
+          for (int label = 0; label < i % 4 + 2; label++) {
+            addDocuments(writer, "S" + i + "|L" + label, 3);
+          }
+
+          writer.flush();
+        }
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher =
+            new IndexSearcher(reader, executor) {
+              @Override
+              protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, 1, 1);
+              }
+            };
+        searcher.setQueryCache(null);
+        assertEquals(segments, searcher.getSlices().length);
+
+        for (int run = 0; run < 20; run++) {
+          AccumuloAccessQuery query =
+              new AccumuloAccessQuery(
+                      "label", List.of("L0"), LabelExtractor.Policy.NONE, 16, null, null)
+                  .profiled();
+
+          assertEquals(3 * segments, searcher.count(query));
+
+          List<AccessProfile.Segment> profiles = query.getProfile().segments();
+          assertEquals(segments, profiles.size());
+
+          for (int i = 0; i < segments; i++) {
+            AccessProfile.Segment profile = profiles.get(i);
+            assertEquals(i, profile.ord());
+            assertEquals("terms", profile.strategy());
+            assertEquals(i % 4 + 2, profile.distinctLabels());
+            assertEquals(profile.distinctLabels(), profile.evaluations());
+            // each segment has its own verdict cache, and sees each of its labels once
+            assertEquals(profile.distinctLabels(), profile.cacheMisses());
+            assertEquals(0, profile.cacheHits());
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void bitsetCacheIsReusedUntilTheSegmentCloses() throws IOException {
+    AccessBitsetCache bitsetCache = new AccessBitsetCache(Settings.EMPTY);
+    AccessStats stats = new AccessStats();
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer =
+          new IndexWriter(
+              directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+        addSegment(writer, "BLUE", "RED");
+        addSegment(writer, "GREEN", "BLUE|RED");
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+
+        assertEquals(3, searcher.count(cachedQuery(bitsetCache, stats, "GREEN", "BLUE")));
+        assertEquals(2, bitsetCache.count());
+        long evaluations = stats.snapshot().evaluations();
+
+        // the same authorization set in another order reuses the doc sets
+        assertEquals(3, searcher.count(cachedQuery(bitsetCache, stats, "BLUE", "GREEN")));
+        assertEquals(evaluations, stats.snapshot().evaluations());
+
+        assertEquals(2, searcher.count(cachedQuery(bitsetCache, stats, "RED")));
+        assertEquals(4, bitsetCache.count());
+      }
+
+      // closing the reader closes its segments
+      assertEquals(0, bitsetCache.count());
+    }
+  }
+
+  @Test
+  public void selectiveClausesLeadTheDocValuesCheck() throws IOException {
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+        for (int i = 0; i < 200; i++) {
+          Document document = document(i % 2 == 0 ? "BLUE" : "RED");
+          document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+          document.add(new StringField("parity", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+          writer.addDocument(document);
+        }
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        AccessStats stats = new AccessStats();
+        Query query = cachedQuery(null, stats, "BLUE");
+
+        assertEquals(1, searcher.count(filtered(new TermQuery(new Term("id", "4")), query)));
+        assertEquals(0, searcher.count(filtered(new TermQuery(new Term("id", "5")), query)));
+        // only the labels of the two documents of the other clause were read
+        assertEquals(2, stats.snapshot().cacheMisses());
+        assertEquals(0, searcher.count(filtered(new TermQuery(new Term("parity", "odd")), query)));
+        assertEquals(Map.of("doc_values", 2L, "terms", 1L), stats.snapshot().strategySegments());
+
+        // a single led document only reads its labels through doc values, while a clause
+        // matching half of the documents is not selective enough and the terms are walked
+        ScorerSupplier scorerSupplier =
+            searcher
+                .createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f)
+                .scorerSupplier(reader.leaves().get(0));
+        assertNotNull(scorerSupplier.get(1).twoPhaseIterator());
+        assertNull(scorerSupplier.get(100).twoPhaseIterator());
+      }
+    }
+  }
+
+  @Test
+  public void segmentsWithUniformVerdictsSkipPerDocumentWork() throws IOException {
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer =
+          new IndexWriter(
+              directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+        // one segment per feed
+        addSegment(writer, "BLUE", "BLUE|GREEN");
+        addSegment(writer, "RED", "RED&GREEN");
+        addSegment(writer, "BLUE", "RED", null);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        LabelSummaryCache labelSummaries = new LabelSummaryCache(Settings.EMPTY);
+        AccessStats stats = new AccessStats();
+
+        AccumuloAccessQuery query =
+            new AccumuloAccessQuery(
+                    "label",
+                    List.of("BLUE"),
+                    LabelExtractor.Policy.NONE,
+                    16,
+                    null,
+                    labelSummaries,
+                    stats,
+                    null)
+                .profiled();
+
+        assertEquals(3, searcher.count(query));
+        assertEquals(3, labelSummaries.count());
+
+        // only the mixed segment walks its terms
+        assertEquals(
+            List.of("label_summary", "label_summary", "label_summary", "terms"), strategies(query));
+        assertEquals(Map.of("label_summary", 2L, "terms", 1L), stats.snapshot().strategySegments());
+      }
+    }
+  }
+
+  @Test
+  public void blockEvaluationMatchesPerDocumentEvaluation() throws IOException {
+    Random random = new Random(42);
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+        // more than a few blocks, with unlabeled and multi-valued documents
+        for (int i = 0; i < 5000; i++) {
+          Document document = new Document();
+          document.add(new StringField("parity", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+          document.add(new StringField("rare", i % 50 == 0 ? "yes" : "no", Field.Store.NO));
+
+          for (int value = random.nextInt(3); value > 0; value--) {
+            String label = "L" + random.nextInt(40) + ", L" + random.nextInt(40);
+            document.add(new StringField("label", label, Field.Store.NO));
+            document.add(new SortedSetDocValuesField("label", new BytesRef(label)));
+          }
+
+          writer.addDocument(document);
+        }
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        List<String> authorizations = List.of("L1", "L7", "L13", "L20");
+        LabelExtractor.Policy policy = LabelExtractor.Policy.SPLIT_OR;
+
+        Query perDocument =
+            new AccumuloAccessQuery("label", authorizations, policy, 16, null, null);
+        Query block = new BlockAccessQuery("label", authorizations, policy, null);
+
+        assertEquals(searcher.count(perDocument), searcher.count(block));
+        // led by another clause, the block iterator is advanced rather than iterated
+        assertEquals(searcher.count(withParity(perDocument)), searcher.count(withParity(block)));
+
+        // a selective lead has its few documents verified one at a time instead
+        Query rare = new TermQuery(new Term("rare", "yes"));
+        BlockAccessQuery profiled =
+            new BlockAccessQuery("label", authorizations, policy, null).profiled();
+        assertEquals(
+            searcher.count(filtered(rare, perDocument)), searcher.count(filtered(rare, profiled)));
+        searcher.count(withParity(profiled));
+        assertEquals(List.of("doc_values", "block"), strategies(profiled.getProfile()));
+      }
+    }
+  }
+
+  @Test
+  public void blockIteratorAdvancesWithinAndAcrossBlocks() throws IOException {
+    int maxDoc = 4 * BlockAccessQuery.BLOCK_SIZE - 48;
+    TreeSet<Integer> accessible = new TreeSet<>();
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+        for (int i = 0; i < maxDoc; i++) {
+          // more than a block of documents without labels, from 512 to 1199
+          boolean labeled = i % 5 != 0 && (i < 512 || i >= 1200);
+          writer.addDocument(labeled ? document("L" + i % 7) : document());
+
+          if (labeled && (i % 7 == 1 || i % 7 == 3)) {
+            accessible.add(i);
+          }
+        }
+
+        writer.forceMerge(1);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        Query query =
+            new BlockAccessQuery("label", List.of("L1", "L3"), LabelExtractor.Policy.NONE, null);
+        Weight weight = searcher.createWeight(query, ScoreMode.COMPLETE_NO_SCORES, 1f);
+        LeafReaderContext context = reader.leaves().get(0);
+
+        // within the first block, to its last document, to the next blocks, into the gap
+        int[] targets = {0, 7, 300, 511, 512, 513, 700, 1199, 1200, 1201, 1535, 1536, maxDoc - 1};
+
+        for (int from = 0; from < targets.length; from++) {
+          // a fresh iterator per start, advanced through the remaining targets
+          DocIdSetIterator iterator = weight.scorer(context).iterator();
+
+          for (int i = from; i < targets.length; i++) {
+            if (targets[i] <= iterator.docID()) {
+              continue;
+            }
+
+            Integer expected = accessible.ceiling(targets[i]);
+            assertEquals(
+                expected == null ? DocIdSetIterator.NO_MORE_DOCS : expected,
+                iterator.advance(targets[i]),
+                "advance(" + targets[i] + ")");
+          }
+        }
+
+        // nextDoc walks every accessible document across the blocks
+        DocIdSetIterator iterator = weight.scorer(context).iterator();
+        List<Integer> docs = new ArrayList<>();
+
+        for (int doc = iterator.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = iterator.nextDoc()) {
+          docs.add(doc);
+        }
+
+        assertEquals(List.copyOf(accessible), docs);
+      }
+    }
+  }
+
+  private static Query withParity(Query query) {
+    return filtered(new TermQuery(new Term("parity", "odd")), query);
+  }
+
+  private static Query filtered(Query lead, Query query) {
+    return new BooleanQuery.Builder()
+        .add(lead, BooleanClause.Occur.FILTER)
+        .add(query, BooleanClause.Occur.FILTER)
+        .build();
+  }
+
+  private static List<String> strategies(AccumuloAccessQuery query) {
+    return strategies(query.getProfile());
+  }
+
+  private static List<String> strategies(AccessProfile profile) {
+    return profile.segments().stream().map(AccessProfile.Segment::strategy).toList();
+  }
+
+  private static Query cachedQuery(
+      AccessBitsetCache bitsetCache, AccessStats stats, String... authorizations) {
+    return new AccumuloAccessQuery(
+        "label", List.of(authorizations), LabelExtractor.Policy.NONE, 16, bitsetCache, stats);
+  }
+
+  private static Set<Integer> matchingDocs(IndexSearcher searcher, Query query)
+      throws IOException {
+    Set<Integer> docs = new HashSet<>();
+
+    for (ScoreDoc scoreDoc : searcher.search(query, Integer.MAX_VALUE).scoreDocs) {
+      docs.add(scoreDoc.doc);
+    }
+
+    return docs;
+  }
+
+  /** Creates a document with one value of the label field, with doc values, per label. */
+  private static Document document(String... labels) {
+    Document document = new Document();
+
+    for (String label : labels) {
+      document.add(new StringField("label", label, Field.Store.NO));
+      document.add(new SortedSetDocValuesField("label", new BytesRef(label)));
+    }
+
+    return document;
+  }
+
+  private static void addSegment(IndexWriter writer, String... labels) throws IOException {
+    for (String label : labels) {
+      writer.addDocument(label == null ? document() : document(label));
+    }
+
+    writer.flush();
+  }
+
+  private static void addDocuments(IndexWriter writer, String label, int count)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      writer.addDocument(document(label));
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elasticsearch.data.LabelExtractor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.ingest.IngestDocument;
+import org.junit.jupiter.api.Test;
+
+public class AccumuloLabelProcessorTest {
+
+  @Test
+  public void writesTheExtractedLabel() {
+    IngestDocument document = document(Map.of("programs", "IFSR, SDGT"));
+
+    processor(Map.of("label_extraction_policy", "SPLIT_OR")).execute(document);
+
+    assertEquals("IFSR|SDGT", document.getFieldValue("label", String.class));
+  }
+
+  @Test
+  public void invalidLabelFailsTheDocument() {
+    IngestDocument document = document(Map.of("programs", "IFSR&"));
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> processor(Map.of()).execute(document));
+    assertTrue(
+        e.getMessage()
+            .startsWith(
+                "Label [IFSR&] of label field [programs] is not a valid access expression"));
+  }
+
+  @Test
+  public void invalidLabelIsSkippedWithoutTargetField() {
+    // a target field sent by the client must not survive
+    IngestDocument document = document(Map.of("programs", "IFSR&", "label", "PUBLIC"));
+
+    processor(Map.of("on_invalid_label", "skip")).execute(document);
+
+    assertFalse(document.hasField("label"));
+  }
+
+  @Test
+  public void missingLabelFailsUnlessIgnored() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> processor(Map.of()).execute(document(Map.of("other", "IFSR"))));
+    assertEquals("Unable to determine label for label field [programs]", e.getMessage());
+
+    IngestDocument document = document(Map.of("other", "IFSR", "label", "PUBLIC"));
+    processor(Map.of("ignore_missing", true)).execute(document);
+
+    assertFalse(document.hasField("label"));
+  }
+
+  @Test
+  public void writesTheTokensOfDisjunctions() {
+    IngestDocument document = document(Map.of("programs", "IFSR, SDGT"));
+
+    processor(Map.of("label_extraction_policy", "SPLIT_OR", "disjunction_field", "tokens"))
+        .execute(document);
+
+    assertEquals(List.of("IFSR", "SDGT"), document.getFieldValue("tokens", List.class));
+  }
+
+  @Test
+  public void tokensSentByTheClientNeverSurvive() {
+    // every path that does not write the tokens removes the ones sent with the document
+    Map<String, Map<String, Object>> cases =
+        Map.of(
+            "conjunction", Map.of("programs", "IFSR&SDGT"),
+            "invalid label", Map.of("programs", "IFSR&"),
+            "missing label", Map.of("other", "IFSR"));
+
+    cases.forEach(
+        (name, source) -> {
+          Map<String, Object> withTokens = new HashMap<>(source);
+          withTokens.put("tokens", List.of("PUBLIC"));
+          IngestDocument document = document(withTokens);
+
+          processor(
+                  Map.of(
+                      "disjunction_field",
+                      "tokens",
+                      "on_invalid_label",
+                      "skip",
+                      "ignore_missing",
+                      true))
+              .execute(document);
+
+          assertFalse(document.hasField("tokens"), name);
+        });
+  }
+
+  @Test
+  public void oneProcessorExtractsLabelsOnManyThreads() throws Exception {
+    // a pipeline's processor is shared by every ingest thread
+    AccumuloLabelProcessor processor = processor(Map.of("label_extraction_policy", "SPLIT_OR"));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      List<Future<?>> results = new ArrayList<>();
+
+      for (int i = 0; i < 64; i++) {
+        String program = "P" + i;
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+
+                  for (int j = 0; j < 200; j++) {
+                    IngestDocument document =
+                        document(Map.of("programs", List.of(program, "IFSR, SDGT")));
+                    processor.execute(document);
+                    assertEquals(
+                        program + "|IFSR|SDGT", document.getFieldValue("label", String.class));
+                  }
+
+                  return null;
+                }));
+      }
+
+      start.countDown();
+
+      for (Future<?> result : results) {
+        result.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void factoryReadsTheConfig() {
+    AccumuloLabelProcessor processor = processor(Map.of("disjunction_field", "tokens"));
+
+    assertEquals("programs", processor.getLabelField());
+    assertEquals("label", processor.getTargetField());
+    assertEquals("tokens", processor.getDisjunctionField());
+    assertEquals(LabelExtractor.Policy.NONE, processor.getPolicy());
+  }
+
+  @Test
+  public void factoryRejectsInvalidConfig() {
+    assertConfigException(
+        "[target_field] required property is missing", Map.of("label_field", "programs"));
+    assertConfigException(
+        "[label_extraction_policy] unknown policy [SPLIT]",
+        Map.of(
+            "label_field",
+            "programs",
+            "target_field",
+            "label",
+            "label_extraction_policy",
+            "SPLIT"));
+    assertConfigException(
+        "[on_invalid_label] must be one of [fail, skip]",
+        Map.of("label_field", "programs", "target_field", "label", "on_invalid_label", "drop"));
+  }
+
+  private static void assertConfigException(String message, Map<String, Object> config) {
+    ElasticsearchParseException e =
+        assertThrows(
+            ElasticsearchParseException.class,
+            () ->
+                new AccumuloLabelProcessor.Factory()
+                    .create(Map.of(), "tag", null, new HashMap<>(config)));
+    assertEquals(message, e.getMessage());
+  }
+
+  private static AccumuloLabelProcessor processor(Map<String, Object> options) {
+    Map<String, Object> config = new HashMap<>(options);
+    config.put("label_field", "programs");
+    config.put("target_field", "label");
+    return new AccumuloLabelProcessor.Factory().create(Map.of(), "tag", null, config);
+  }
+
+  private static IngestDocument document(Map<String, Object> source) {
+    return new IngestDocument("index", "1", 1, null, null, new HashMap<>(source));
+  }
+}
@@ -0,0 +1,87 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elasticsearch.data.AccessStats;
+import com.elasticsearch.data.LabelEvaluator;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.script.FilterScript;
+import org.elasticsearch.script.ScriptEngine;
+import org.junit.jupiter.api.Test;
+
+public class AuthorizationProfilesTest {
+
+  @Test
+  public void profilesAreParsedOnUpdate() {
+    AccessStats stats = new AccessStats();
+    AuthorizationProfiles profiles = new AuthorizationProfiles(stats);
+    profiles.update("analyst", List.of("RED", "BLUE", "RED"));
+
+    AuthorizationProfiles.Profile profile = profiles.get("analyst");
+    assertEquals(List.of("BLUE", "RED"), profile.authorizations());
+
+    for (LabelEvaluator.Type type : LabelEvaluator.Type.values()) {
+      LabelEvaluator evaluator = profile.evaluator(type, 16);
+      assertTrue(evaluator.canAccess("BLUE&RED"));
+      assertFalse(evaluator.canAccess("BLUE&GREEN"));
+      assertEquals(16, evaluator.verdictCache().maxSize());
+    }
+
+    assertEquals(4, stats.snapshot().evaluations());
+  }
+
+  @Test
+  public void updatesReplaceAndRemoveProfiles() {
+    AuthorizationProfiles profiles = new AuthorizationProfiles(new AccessStats());
+    profiles.update("analyst", List.of("RED"));
+    profiles.update("analyst", List.of("GREEN"));
+
+    LabelEvaluator evaluator = profiles.get("analyst").evaluator(LabelEvaluator.Type.ACCUMULO, 0);
+    assertTrue(evaluator.canAccess("GREEN"));
+    assertFalse(evaluator.canAccess("RED"));
+
+    profiles.update("analyst", List.of());
+    assertThrows(IllegalArgumentException.class, () -> profiles.get("analyst"));
+  }
+
+  @Test
+  public void onlyTheProfileScriptIsNotRequestCached() {
+    // the same request gives other results once a profile it references changes
+    assertTrue(compile(AccumuloAccessPlugin.SCRIPT_SOURCE).isResultDeterministic());
+    assertFalse(compile(AccumuloAccessPlugin.PROFILE_SCRIPT_SOURCE).isResultDeterministic());
+  }
+
+  @Test
+  public void requestCachedScriptRejectsProfiles() {
+    Map<String, Object> params =
+        Map.of("labelField", "label", ABACAccessLeafFactory.AUTHORIZATION_PROFILE, "analyst");
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> compile(AccumuloAccessPlugin.SCRIPT_SOURCE).newFactory(params, null));
+    assertEquals(
+        "[authorizationProfile] requires the script source [accumulo-access-profile], as its"
+            + " results are not request cached",
+        e.getMessage());
+  }
+
+  @Test
+  public void unknownProfileIsRejected() {
+    AuthorizationProfiles profiles = new AuthorizationProfiles(new AccessStats());
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> profiles.get("missing"));
+    assertEquals("Unknown authorization profile [missing]", e.getMessage());
+  }
+
+  private static FilterScript.Factory compile(String source) {
+    ScriptEngine engine =
+        new AccumuloAccessPlugin(Settings.EMPTY)
+            .getScriptEngine(Settings.EMPTY, List.of(FilterScript.CONTEXT));
+    return engine.compile("access", source, FilterScript.CONTEXT, Map.of());
+  }
+}
@@ -0,0 +1,96 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.jupiter.api.Test;
+
+public class LabelSummaryCacheTest {
+
+  @Test
+  public void summariesOfSegmentsWithTooManyLabelsAreBounded() throws IOException {
+    LabelSummaryCache cache =
+        new LabelSummaryCache(
+            Settings.builder()
+                .put(LabelSummaryCache.MAX_LABELS_SETTING.getKey(), 1)
+                .put(
+                    LabelSummaryCache.SIZE_SETTING.getKey(),
+                    10 * LabelSummaryCache.ENTRY_RAM_BYTES + "b")
+                .build());
+
+    try (Directory directory = new ByteBuffersDirectory()) {
+      writeSegments(directory, 50, "BLUE", "RED");
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        for (LeafReaderContext context : reader.leaves()) {
+          assertNull(cache.labels(context, "label"));
+        }
+
+        assertTrue(cache.count() <= 10, "cached " + cache.count() + " summaries");
+      }
+    }
+  }
+
+  @Test
+  public void closingAReaderOnlyEvictsItsSegments() throws IOException {
+    LabelSummaryCache cache = new LabelSummaryCache(Settings.EMPTY);
+
+    try (Directory first = new ByteBuffersDirectory();
+        Directory second = new ByteBuffersDirectory()) {
+      writeSegments(first, 3, "BLUE");
+      writeSegments(second, 2, "RED");
+
+      try (DirectoryReader secondReader = DirectoryReader.open(second)) {
+        try (DirectoryReader firstReader = DirectoryReader.open(first)) {
+          summarize(cache, firstReader);
+          summarize(cache, secondReader);
+          assertEquals(5, cache.count());
+        }
+
+        assertEquals(2, cache.count());
+        assertEquals(List.of("RED"), cache.labels(secondReader.leaves().get(0), "label"));
+      }
+
+      assertEquals(0, cache.count());
+    }
+  }
+
+  private static void summarize(LabelSummaryCache cache, DirectoryReader reader)
+      throws IOException {
+    for (LeafReaderContext context : reader.leaves()) {
+      cache.labels(context, "label");
+    }
+  }
+
+  /** Writes the segments, each holding one document per label. */
+  private static void writeSegments(Directory directory, int segments, String... labels)
+      throws IOException {
+    try (IndexWriter writer =
+        new IndexWriter(
+            directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+      for (int i = 0; i < segments; i++) {
+        for (String label : labels) {
+          Document document = new Document();
+          document.add(new StringField("label", label, Field.Store.NO));
+          writer.addDocument(document);
+        }
+
+        writer.flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.elasticsearch.data.LabelExtractor;
+import com.elasticsearch.data.LabelPath;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentEOFException;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class PartialSourceReaderTest {
+  private static final String TEST_SOURCE_PATH = "src/test/resources/";
+
+  // shapes the test files do not have
+  private static final String EDGE_CASES =
+      """
+      {
+        "empty": [],
+        "mixed": [{"label": "BLUE"}, "RED", 1, null, ["GREEN"], {"label": ["PINK", {"x": 1}]}],
+        "leading_value": ["RED", {"label": "BLUE"}],
+        "objects": [{"other": "BLUE"}, {"label": "GREEN, RED"}, {"label": []}],
+        "nulls": {"label": null, "list": [null, "BLUE"]},
+        "a.b": "RED, GREEN",
+        "a": {"b": "BLUE, PINK", "c": {"d": ["BL UE", 2.5]}},
+        "deep": [{"inner": [{"label": "BLUE"}, {"label": {}}]}, {"inner": {"label": "GREEN"}}],
+        "last": "IFSR, SDGT"
+      }
+      """;
+
+  private static Stream<Arguments> documents() throws IOException {
+    List<Arguments> documents = new ArrayList<>();
+
+    for (String filename :
+        List.of("sanction1.json", "sanction2.json", "sanction3.json", "test_data1.json")) {
+      byte[] bytes = Files.readAllBytes(Paths.get(TEST_SOURCE_PATH + filename));
+      documents.add(Arguments.of(filename, new BytesArray(bytes)));
+    }
+
+    documents.add(Arguments.of("edge cases", new BytesArray(EDGE_CASES)));
+    return documents.stream();
+  }
+
+  @ParameterizedTest
+  @MethodSource("documents")
+  public void readsTheSameLabelsAsTheFullSource(String name, BytesReference source)
+      throws IOException {
+    Map<String, Object> fullSource = parse(source);
+
+    for (String path : paths(fullSource)) {
+      for (LabelExtractor.Policy policy : LabelExtractor.Policy.values()) {
+        LabelPath labelPath = LabelPath.compile(path, policy);
+        Map<String, Object> partialSource =
+            new PartialSourceReader(labelPath).read(source, XContentType.JSON);
+
+        assertEquals(
+            labelPath.extractor().extract(fullSource),
+            labelPath.extractor().extract(partialSource),
+            String.format("%s: [%s] with %s", name, path, policy));
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("documents")
+  public void readsManyPathsInOnePass(String name, BytesReference source) throws IOException {
+    Map<String, Object> fullSource = parse(source);
+    List<String> paths = List.copyOf(paths(fullSource));
+
+    for (LabelExtractor.Policy policy : LabelExtractor.Policy.values()) {
+      // every pair covers paths sharing a head, and label fields that are another path's head
+      for (String first : paths) {
+        for (String second : paths) {
+          assertSameLabels(name, source, fullSource, List.of(first, second), policy);
+        }
+      }
+
+      assertSameLabels(name, source, fullSource, paths, policy);
+    }
+  }
+
+  @Test
+  public void stopsOnceEveryLabelFieldIsFound() throws IOException {
+    // the rest of the document is never read, so it may as well be cut off
+    BytesReference source =
+        new BytesArray("{\"a\": \"BLUE\", \"x\": {\"b\": 1}, \"b\": [\"RED\"], \"c\": {\"d\": ");
+
+    assertEquals(
+        Map.of("a", "BLUE", "b", List.of("RED")),
+        new PartialSourceReader(List.of(path("b"), path("a"))).read(source, XContentType.JSON));
+
+    // a nested label field may still follow
+    PartialSourceReader nested = new PartialSourceReader(List.of(path("a"), path("c.d")));
+    assertThrows(XContentEOFException.class, () -> nested.read(source, XContentType.JSON));
+  }
+
+  /**
+   * Reads all fields in one pass and checks that each of them gives the same labels as when it is
+   * read alone and as the fully parsed source.
+   */
+  private static void assertSameLabels(
+      String name,
+      BytesReference source,
+      Map<String, Object> fullSource,
+      List<String> fields,
+      LabelExtractor.Policy policy)
+      throws IOException {
+    List<LabelPath> labelPaths =
+        fields.stream().map(field -> LabelPath.compile(field, policy)).toList();
+    Map<String, Object> partialSource =
+        new PartialSourceReader(labelPaths).read(source, XContentType.JSON);
+
+    for (LabelPath labelPath : labelPaths) {
+      Map<String, Object> singleSource =
+          new PartialSourceReader(labelPath).read(source, XContentType.JSON);
+      String message =
+          String.format("%s: [%s] of %s with %s", name, labelPath.labelField(), fields, policy);
+
+      assertEquals(
+          labelPath.extractor().extract(fullSource),
+          labelPath.extractor().extract(partialSource),
+          message);
+      assertEquals(
+          labelPath.extractor().extract(singleSource),
+          labelPath.extractor().extract(partialSource),
+          message);
+    }
+  }
+
+  private static LabelPath path(String labelField) {
+    return LabelPath.compile(labelField, LabelExtractor.Policy.NONE);
+  }
+
+  private static Map<String, Object> parse(BytesReference source) {
+    return XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+  }
+
+  /** Returns the path of every field of the source, and of a few fields it does not have. */
+  private static Set<String> paths(Map<String, Object> source) {
+    Set<String> paths = new TreeSet<>(List.of("missing", "a.missing", "empty.label"));
+    collectPaths(source, "", paths);
+    return paths;
+  }
+
+  /** Collects the path of every field, including objects and the fields of arrays of objects. */
+  private static void collectPaths(Object value, String prefix, Set<String> paths) {
+    if (value instanceof Map<?, ?> map) {
+      map.forEach(
+          (key, child) -> {
+            String path = prefix + key;
+            paths.add(path);
+            collectPaths(child, path + ".", paths);
+          });
+    } else if (value instanceof List<?> list) {
+      list.forEach(item -> collectPaths(item, prefix, paths));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.elasticsearch.data.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.elasticsearch.data.LabelBatch;
+import com.elasticsearch.data.LabelEvaluator;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+
+public class RestEvaluateActionTest {
+
+  @Test
+  public void linesReportVerdictsOrErrors() throws Exception {
+    List<LabelEvaluator> evaluators =
+        List.of(new LabelEvaluator(List.of("BLUE"), 0), new LabelEvaluator(List.of("RED"), 0));
+    LabelBatch batch =
+        new LabelBatch(Arrays.asList("BLUE|RED", "BLUE&", null), evaluators)
+            .evaluate(Runnable::run, 1)
+            .get();
+
+    assertEquals(
+        Map.of("item", 0, "label", "BLUE|RED", "accessible", List.of(true, true)),
+        line(batch, 0, null));
+
+    // an invalid label is reported as such rather than as inaccessible
+    Map<String, Object> invalid = line(batch, 1, List.of(List.of("BLUE"), List.of("RED")));
+    assertEquals("BLUE&", invalid.get("label"));
+    assertEquals(batch.error(1), invalid.get("error"));
+    assertTrue(invalid.get("error").toString().length() > 0);
+    assertFalse(invalid.containsKey("accessible"));
+    assertFalse(invalid.containsKey("explanations"));
+
+    assertEquals(Map.of("item", 2, "error", "no label"), line(batch, 2, null));
+  }
+
+  @Test
+  public void batchesOverTheMaxItemsAreBadRequests() {
+    List<String> labels = List.of("BLUE", "RED", "GREEN");
+    assertEquals(labels, RestEvaluateAction.requireItems(labels, false, 3));
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> RestEvaluateAction.requireItems(labels, false, 2));
+    assertEquals(
+        "[labels] has [3] items, more than the [2] of [accumulo_access.evaluate.max_items]",
+        e.getMessage());
+    assertEquals(RestStatus.BAD_REQUEST, ExceptionsHelper.status(e));
+  }
+
+  private static Map<String, Object> line(
+      LabelBatch batch, int item, List<List<String>> explained) throws IOException {
+    String line = RestEvaluateAction.line(batch, item, explained);
+    return XContentHelper.convertToMap(new BytesArray(line), false, XContentType.JSON).v2();
+  }
+}
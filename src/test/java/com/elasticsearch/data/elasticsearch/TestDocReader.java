@@ -0,0 +1,98 @@
+package com.elasticsearch.data.elasticsearch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.script.DocReader;
+import org.elasticsearch.script.field.Field;
+import org.elasticsearch.search.lookup.Source;
+import org.elasticsearch.xcontent.XContentFactory;
+
+/**
+ * A {@link DocReader} over in-memory documents, each with its {@code _source} and the keyword doc
+ * values of its fields.
+ */
+class TestDocReader implements DocReader {
+  private final List<BytesReference> sources;
+  private final List<Map<String, List<String>>> docValues;
+  private int docId;
+
+  TestDocReader(List<Map<String, Object>> sources, List<Map<String, List<String>>> docValues) {
+    this.sources = sources.stream().map(TestDocReader::toBytes).toList();
+    this.docValues = docValues;
+  }
+
+  /** Creates a reader over documents without doc values. */
+  static TestDocReader ofSources(List<Map<String, Object>> sources) {
+    return new TestDocReader(
+        sources, sources.stream().map(source -> Map.<String, List<String>>of()).toList());
+  }
+
+  private static BytesReference toBytes(Map<String, Object> source) {
+    try {
+      return BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  int size() {
+    return sources.size();
+  }
+
+  @Override
+  public void setDocument(int docId) {
+    this.docId = docId;
+  }
+
+  @Override
+  public Supplier<Source> source() {
+    return () -> Source.fromBytes(sources.get(docId));
+  }
+
+  @Override
+  public Map<String, ScriptDocValues<?>> doc() {
+    Map<String, ScriptDocValues<?>> doc = new HashMap<>();
+    docValues.get(docId).forEach((field, values) -> doc.put(field, strings(values)));
+    return doc;
+  }
+
+  private static ScriptDocValues.Strings strings(List<String> values) {
+    return new ScriptDocValues.Strings(
+        new ScriptDocValues.Supplier<>() {
+          @Override
+          public void setNextDocId(int docId) {}
+
+          @Override
+          public String getInternal(int index) {
+            return values.get(index);
+          }
+
+          @Override
+          public int size() {
+            return values.size();
+          }
+        });
+  }
+
+  @Override
+  public Field<?> field(String fieldName) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Stream<Field<?>> fields(String fieldGlob) {
+    return Stream.empty();
+  }
+
+  @Override
+  public Map<String, Object> docAsMap() {
+    return Map.of();
+  }
+}